@@ -0,0 +1,331 @@
+/* ConnectFour
+ * File: CoreBenchmark.java
+ * Creation: 20.10.2026 14:37:52
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import connectfour.game.ConnectFourAi;
+import connectfour.game.IConnectFour.Players;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.XorShiftRandom;
+
+/**
+ * Micro benchmarks of the game core and the AI. Every benchmark is run on a
+ * fixed corpus of positions for several grid sizes and reports the number of
+ * operations per second (mean and standard deviation over the measurement
+ * iterations) and the number of bytes allocated per operation.
+ * <p>
+ * Each benchmark is run for some warm up iterations first, so that the JIT
+ * compiler has compiled the measured code. The results of the operations are
+ * accumulated in a {@link #sink sink}, so that the compiler cannot remove the
+ * measured code.
+ * <p>
+ * Usage: <code>CoreBenchmark [iterationTime [filter]]</code>
+ * <br>
+ * The iteration time is given in milliseconds. Only benchmarks whose name
+ * contains the filter are run.
+ */
+public class CoreBenchmark
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Position of the corpus. Makes the protected methods of {@link
+     * LocalConnectFour LocalConnectFour} accessible.
+     */
+    private static class Position extends LocalConnectFour
+    {
+        public Position( int rows, int columns, int winLength )
+        {
+            super( rows, columns, winLength, Players.FIRST );
+        }
+        
+        /** Calls {@link LocalConnectFour#checkAndSetFinished()}. */
+        public boolean checkFinished()
+        {
+            checkAndSetFinished();
+            return isGameFinished();
+        }
+    }
+    
+    /**
+     * AI which searches a position to a fixed depth without a transposition
+     * table, so that every search does the same work.
+     */
+    private static class FixedDepthSearch extends ConnectFourAi
+    {
+        public FixedDepthSearch( LocalConnectFour game, int depth )
+        {
+            super( game, depth, 1, null );
+            setEndgameThreshold( 0 );
+        }
+        
+        /**
+         * Searches a position.
+         * @param position The position. It is not changed.
+         * @return The rating of the best move.
+         */
+        public int search( LocalConnectFour position )
+        {
+            setGameCopy( position.clone() );
+            setSeed( 0 );
+            return search()[0];
+        }
+    }
+    
+    /** A measured operation. */
+    private static abstract class Benchmark
+    {
+        /** Name of the benchmark. */
+        public final String name;
+        
+        public Benchmark( String name )
+        {
+            this.name = name;
+        }
+        
+        /**
+         * Runs the operation once.
+         * @param position Position of the corpus to use.
+         * @return Some result of the operation.
+         */
+        public abstract long run( Position position );
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Grid sizes (rows, columns, win length) of the corpus. */
+    private final static int[][] gridSizes = {
+        { 6, 7, 4 },
+        { 8, 8, 4 },
+        { 20, 20, 4 }
+    };
+    
+    /** Search depths of the minmax benchmark for each grid size. */
+    private final static int[] searchDepths = { 7, 6, 3 };
+    
+    /**
+     * Number of discs of the corpus positions which are created by random
+     * moves, given as fraction of the number of fields.
+     */
+    private final static double[] randomFillings = { 0.2, 0.35, 0.5 };
+    
+    /** Number of warm up iterations. */
+    private final static int warmUpIterations = 3;
+    
+    /** Number of measured iterations. */
+    private final static int iterations = 5;
+    
+    /** Accumulates the results of the operations. */
+    static volatile long sink;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Creates the corpus for one grid size. It contains the {@link
+     * ParallelSearchBenchmark#createPosition(int, int, int, int) opening
+     * positions} of the other benchmarks and positions filled by random
+     * moves with a fixed seed. No position of the corpus is finished.
+     * @param rows Number of rows of the grid.
+     * @param columns Number of columns of the grid.
+     * @param winLength Discs needed in a row to win.
+     * @return The positions.
+     */
+    static List<Position> createCorpus( int rows, int columns, int winLength )
+    {
+        List<Position> corpus = new ArrayList<Position>();
+        for( int i = 0; i < 6; i++ )
+        {
+            LocalConnectFour opening = ParallelSearchBenchmark.createPosition(
+                i, rows, columns, winLength );
+            Position position = new Position( rows, columns, winLength );
+            for( int move : opening.getMoves() )
+                position.doMove( move );
+            corpus.add( position );
+        }
+        
+        XorShiftRandom random = new XorShiftRandom( rows * 1000 + columns );
+        for( double filling : randomFillings )
+        {
+            Position position = new Position( rows, columns, winLength );
+            int discs = (int) (filling * rows * columns);
+            while( position.getMoves().size() < discs )
+            {
+                int column = random.nextInt( columns );
+                if( !position.doMove( column ) )
+                    continue;
+                if( position.isGameFinished() )
+                    position.undoLastMove();
+            }
+            corpus.add( position );
+        }
+        return corpus;
+    }
+    
+    /**
+     * Creates the benchmarks for one grid size.
+     * @param corpus Positions of the corpus.
+     * @param depth Search depth of the minmax benchmark.
+     * @return The benchmarks.
+     */
+    static List<Benchmark> createBenchmarks( List<Position> corpus,
+                                             final int depth )
+    {
+        final LocalConnectFour game = corpus.get( 0 );
+        final ConnectFourAi ai = new ConnectFourAi( game, depth, 1, null );
+        final FixedDepthSearch search = new FixedDepthSearch( game, depth );
+        
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add( new Benchmark( "doMove/undoLastMove" ) {
+            private int column = 0;
+            
+            @Override
+            public long run( Position position )
+            {
+                column = (column + 1) % position.getColumns();
+                if( !position.doMove( column ) )
+                    return 0;
+                return position.undoLastMove();
+            }
+        } );
+        benchmarks.add( new Benchmark( "checkAndSetFinished" ) {
+            @Override
+            public long run( Position position )
+            {
+                return position.checkFinished() ? 1 : 0;
+            }
+        } );
+        benchmarks.add( new Benchmark( "clone" ) {
+            @Override
+            public long run( Position position )
+            {
+                return position.clone().getHash();
+            }
+        } );
+        benchmarks.add( new Benchmark( "getSnapshot" ) {
+            @Override
+            public long run( Position position )
+            {
+                return position.getSnapshot().getHash();
+            }
+        } );
+        benchmarks.add( new Benchmark( "getSnapshot/toGame" ) {
+            @Override
+            public long run( Position position )
+            {
+                return position.getSnapshot().toGame().getHash();
+            }
+        } );
+        benchmarks.add( new Benchmark( "rate" ) {
+            @Override
+            public long run( Position position )
+            {
+                return ai.rate( position );
+            }
+        } );
+        benchmarks.add( new Benchmark( "minmax depth " + depth ) {
+            @Override
+            public long run( Position position )
+            {
+                return search.search( position );
+            }
+        } );
+        return benchmarks;
+    }
+    
+    /**
+     * Runs the operation of a benchmark on the positions of the corpus
+     * repeatedly until the time runs out.
+     * @param benchmark The benchmark.
+     * @param corpus The positions.
+     * @param time Time in nanoseconds.
+     * @return An array containing the number of operations, the needed time
+     *     in nanoseconds and the number of allocated bytes.
+     */
+    static long[] runIteration( Benchmark benchmark, List<Position> corpus,
+                                long time )
+    {
+        long ops = 0, result = 0;
+        final long bytes = SearchAllocationBenchmark.getAllocatedBytes();
+        final long start = System.nanoTime();
+        long elapsed;
+        do
+        {
+            for( Position position : corpus )
+                result += benchmark.run( position );
+            ops += corpus.size();
+            elapsed = System.nanoTime() - start;
+        } while( elapsed < time );
+        final long allocated = SearchAllocationBenchmark.getAllocatedBytes()
+                               - bytes;
+        sink += result;
+        return new long[] { ops, elapsed, allocated };
+    }
+    
+    public static void main( String[] args )
+    {
+        long time = 1000000L * ((args.length > 0)
+                                ? Long.parseLong( args[0] ) : 1000);
+        String filter = (args.length > 1) ? args[1] : "";
+        
+        System.out.println( "benchmark             grid         ops/s"
+                            + "       error    bytes/op" );
+        for( int g = 0; g < gridSizes.length; g++ )
+        {
+            final int[] size = gridSizes[g];
+            List<Position> corpus = createCorpus( size[0], size[1], size[2] );
+            for( Benchmark benchmark
+                 : createBenchmarks( corpus, searchDepths[g] ) )
+            {
+                if( !benchmark.name.contains( filter ) )
+                    continue;
+                
+                for( int i = 0; i < warmUpIterations; i++ )
+                    runIteration( benchmark, corpus, time );
+                
+                double sum = 0, sumOfSquares = 0;
+                long ops = 0, bytes = 0;
+                for( int i = 0; i < iterations; i++ )
+                {
+                    long[] result = runIteration( benchmark, corpus, time );
+                    double opsPerSecond = result[0] * 1e9 / result[1];
+                    sum += opsPerSecond;
+                    sumOfSquares += opsPerSecond * opsPerSecond;
+                    ops += result[0];
+                    bytes += result[2];
+                }
+                double mean = sum / iterations;
+                double deviation = Math.sqrt( Math.max(
+                    0, sumOfSquares / iterations - mean * mean ) );
+                System.out.println( String.format(
+                    "%-20s  %-7s  %12.1f  %10.1f  %10.1f", benchmark.name,
+                    size[0] + "x" + size[1], mean, deviation,
+                    (double) bytes / ops ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/* ConnectFour
+ * File: ParallelSearchBenchmark.java
+ * Creation: 18.10.2026 11:05:27
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.bench;
+
+import connectfour.game.ConnectFourAi;
+import connectfour.game.IConnectFour.Players;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.TranspositionTable;
+
+/**
+ * Measures how the parallel search of {@link ConnectFourAi ConnectFourAi}
+ * scales with the number of threads. For each thread count a fixed set of
+ * positions is searched to a fixed depth and the time to reach this depth as
+ * well as the number of nodes per second are reported.
+ * <p>
+ * Usage: <code>ParallelSearchBenchmark [depth [maxThreads [rows columns
+ * winLength]]]</code>
+ */
+public class ParallelSearchBenchmark
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Positions to search given as moves relative to the center column.
+     */
+    private final static int[][] positions = {
+        {},
+        { 0 },
+        { 0, 0 },
+        { 0, -1, 1 },
+        { 0, 0, 0, 0, -1, 1 },
+        { -1, 0, 1, 1, 0, -2, 2 }
+    };
+    
+    /** Memory budget of the transposition table in bytes. */
+    private final static long memoryBudget = 64L << 20;
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Creates one of the benchmark positions.
+     * @param position Index of the position in {@link #positions positions}.
+     * @param rows Number of rows of the grid.
+     * @param columns Number of columns of the grid.
+     * @param winLength Discs needed in a row to win.
+     * @return The created game.
+     */
+    static LocalConnectFour createPosition( int position, int rows,
+                                            int columns, int winLength )
+    {
+        LocalConnectFour game = new LocalConnectFour( rows, columns, winLength,
+                                                      Players.FIRST );
+        for( int move : positions[position] )
+            game.doMove( columns / 2 + move );
+        return game;
+    }
+    
+    /**
+     * Searches all positions with the specified number of threads.
+     * @param threads Number of threads.
+     * @param depth Recursion depth.
+     * @param rows Number of rows of the grid.
+     * @param columns Number of columns of the grid.
+     * @param winLength Discs needed in a row to win.
+     * @return An array containing the needed time in nanoseconds and the
+     *     number of visited nodes.
+     */
+    static long[] run( int threads, int depth, int rows, int columns,
+                       int winLength )
+    {
+        long time = 0, nodes = 0;
+        for( int i = 0; i < positions.length; i++ )
+        {
+            LocalConnectFour game = createPosition( i, rows, columns,
+                                                    winLength );
+            ConnectFourAi ai = new ConnectFourAi( game, depth, 1,
+                new TranspositionTable( memoryBudget ) );
+            ai.setThreads( threads );
+            
+            long start = System.nanoTime();
+            ai.move();
+            time += System.nanoTime() - start;
+            nodes += ai.getTotalNodes();
+        }
+        return new long[] { time, nodes };
+    }
+    
+    public static void main( String[] args )
+    {
+        int depth = (args.length > 0) ? Integer.parseInt( args[0] ) : 9;
+        int maxThreads = (args.length > 1) ? Integer.parseInt( args[1] )
+                         : Runtime.getRuntime().availableProcessors();
+        int rows = (args.length > 4) ? Integer.parseInt( args[2] ) : 6;
+        int columns = (args.length > 4) ? Integer.parseInt( args[3] ) : 7;
+        int winLength = (args.length > 4) ? Integer.parseInt( args[4] ) : 4;
+        
+        System.out.println( "Grid " + rows + "x" + columns + ", win length "
+                            + winLength + ", depth " + depth + ", "
+                            + positions.length + " positions" );
+        
+        /* Warm up the JIT compiler. */
+        run( 1, Math.min( depth, 6 ), rows, columns, winLength );
+        
+        System.out.println( "threads  time-to-depth [ms]        nodes"
+                            + "    knodes/s  speedup" );
+        double baseTime = 0;
+        for( int threads = 1; threads <= maxThreads;
+             threads = (threads < maxThreads && 2 * threads > maxThreads)
+                       ? maxThreads : 2 * threads )
+        {
+            long[] result = run( threads, depth, rows, columns, winLength );
+            double millis = result[0] / 1e6;
+            if( threads == 1 )
+                baseTime = millis;
+            System.out.println( String.format(
+                "%7d  %18.1f  %11d  %10.1f  %7.2f", threads, millis,
+                result[1], result[1] / millis, baseTime / millis ) );
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/* ConnectFour
+ * File: SearchAlgorithmBenchmark.java
+ * Creation: 18.10.2026 16:40:09
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.bench;
+
+import connectfour.game.ConnectFourAi;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.TranspositionTable;
+
+/**
+ * Compares the search algorithms of {@link ConnectFourAi ConnectFourAi} by
+ * the number of visited nodes and the time needed to search the same
+ * positions to a fixed depth.
+ * <p>
+ * Usage: <code>SearchAlgorithmBenchmark [depth [aspirationWindow [rows
+ * columns winLength]]]</code>
+ */
+public class SearchAlgorithmBenchmark
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Searches all benchmark positions with one configuration.
+     * @param algorithm Search algorithm.
+     * @param aspirationWindow Half width of the aspiration window.
+     * @param depth Recursion depth.
+     * @param rows Number of rows of the grid.
+     * @param columns Number of columns of the grid.
+     * @param winLength Discs needed in a row to win.
+     * @return An array containing the needed time in nanoseconds and the
+     *     number of visited nodes.
+     */
+    static long[] run( ConnectFourAi.Algorithm algorithm,
+                       int aspirationWindow, int depth, int rows, int columns,
+                       int winLength )
+    {
+        TranspositionTable tt = new TranspositionTable();
+        long time = 0, nodes = 0;
+        for( int i = 0; i < 6; i++ )
+        {
+            LocalConnectFour game = ParallelSearchBenchmark.createPosition(
+                i, rows, columns, winLength );
+            ConnectFourAi ai = new ConnectFourAi( game, depth, 1, tt );
+            ai.setAlgorithm( algorithm );
+            ai.setAspirationWindow( aspirationWindow );
+            tt.clear();
+            
+            long start = System.nanoTime();
+            ai.move();
+            time += System.nanoTime() - start;
+            nodes += ai.getNodes();
+        }
+        return new long[] { time, nodes };
+    }
+    
+    public static void main( String[] args )
+    {
+        int depth = (args.length > 0) ? Integer.parseInt( args[0] ) : 9;
+        int window = (args.length > 1) ? Integer.parseInt( args[1] ) : 8;
+        int rows = (args.length > 4) ? Integer.parseInt( args[2] ) : 6;
+        int columns = (args.length > 4) ? Integer.parseInt( args[3] ) : 7;
+        int winLength = (args.length > 4) ? Integer.parseInt( args[4] ) : 4;
+        
+        System.out.println( "Grid " + rows + "x" + columns + ", win length "
+                            + winLength + ", depth " + depth );
+        
+        /* Warm up the JIT compiler. */
+        for( ConnectFourAi.Algorithm algorithm
+             : ConnectFourAi.Algorithm.values() )
+            run( algorithm, window, Math.min( depth, 6 ), rows, columns,
+                 winLength );
+        
+        System.out.println( "algorithm   aspiration        nodes   time [ms]" );
+        for( ConnectFourAi.Algorithm algorithm
+             : ConnectFourAi.Algorithm.values() )
+        {
+            for( int aspiration : new int[] { 0, window } )
+            {
+                long[] result = run( algorithm, aspiration, depth, rows,
+                                     columns, winLength );
+                System.out.println( String.format(
+                    "%-10s  %10d  %11d  %10.1f", algorithm, aspiration,
+                    result[1], result[0] / 1e6 ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/* ConnectFour
+ * File: SearchAllocationBenchmark.java
+ * Creation: 18.10.2026 13:21:50
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.bench;
+
+import java.lang.management.ManagementFactory;
+
+import connectfour.game.ConnectFourAi;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.TranspositionTable;
+
+/**
+ * Verifies that the search of {@link ConnectFourAi ConnectFourAi} does not
+ * allocate memory per searched node. The memory allocated by the current
+ * thread during searches of the benchmark positions is divided by the number
+ * of visited nodes. The remaining allocations per move (copy of the game and
+ * search buffers) are independent of the number of nodes, so the bytes per
+ * node should approach zero with increasing depth.
+ * <p>
+ * Usage: <code>SearchAllocationBenchmark [depth [rows columns
+ * winLength]]</code>
+ */
+public class SearchAllocationBenchmark
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns the number of bytes allocated by the current thread so
+     *     far.
+     */
+    static long getAllocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(
+                    Thread.currentThread().getId() );
+    }
+    
+    public static void main( String[] args )
+    {
+        int depth = (args.length > 0) ? Integer.parseInt( args[0] ) : 8;
+        int rows = (args.length > 3) ? Integer.parseInt( args[1] ) : 6;
+        int columns = (args.length > 3) ? Integer.parseInt( args[2] ) : 7;
+        int winLength = (args.length > 3) ? Integer.parseInt( args[3] ) : 4;
+        
+        /* The transposition table is allocated once and cleared for every
+         * search.
+         */
+        TranspositionTable tt = new TranspositionTable();
+        
+        for( int run = 0; run < 4; run++ )
+        {
+            long bytes = 0, nodes = 0;
+            for( int i = 0; i < 6; i++ )
+            {
+                LocalConnectFour game =
+                    ParallelSearchBenchmark.createPosition(
+                        i, rows, columns, winLength );
+                ConnectFourAi ai = new ConnectFourAi( game, depth, 1, tt );
+                tt.clear();
+                
+                long before = getAllocatedBytes();
+                ai.move();
+                bytes += getAllocatedBytes() - before;
+                nodes += ai.getNodes();
+            }
+            
+            /* The first runs only warm up the JIT compiler. */
+            if( run == 3 )
+            {
+                System.out.println( "Grid " + rows + "x" + columns
+                                    + ", win length " + winLength
+                                    + ", depth " + depth );
+                System.out.println( "nodes: " + nodes + ", allocated bytes: "
+                                    + bytes + ", bytes per node: "
+                                    + String.format( "%.4f",
+                                                     (double) bytes / nodes ) );
+            }
+        }
+    }
+}
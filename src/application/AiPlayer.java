@@ -22,36 +22,142 @@
 
 package application;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import connectfour.game.AiScheduler;
 import connectfour.game.ConnectFourAi;
+import connectfour.game.IConnectFourEventEmitting;
 import connectfour.game.LocalConnectFour;
+import connectfour.game.SearchProgressEvent;
+import connectfour.game.SearchProgressListener;
 
 /**
- * AI which makes a move automatically. This will run in an additional thread.
+ * AI which makes a move automatically. This will run in a worker thread of the
+ * {@link AiScheduler#getShared() shared AI scheduler}.
  * Therefore be careful with {@link ConnectFour#game ConnectFour.game}. It will
  * be locked by the AI while accessed.
  * In the current implementation it is not possible that another thread
  * accesses the object stored in ConnectFour.game while the AI is running.
  * Therefore you won't find locks/synchronization outside the AI.
+ * {@link #unregister() Unregistering} the player cancels a running search and
+ * waits until the search has ended without doing a move.
+ * <p>
+ * {@link #move() move()} is called in the event dispatching thread and must
+ * not block. If the scheduler has no room for the move, the move is offered
+ * again after a short delay.
  */
 public class AiPlayer implements IPlayer
 {
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Delay in milliseconds after which a move rejected by the scheduler is
+     * offered again.
+     */
+    private final static int retryDelay = 100;
+    
     ////////////////////////////////////////////////////////////////////////////
     // Member Variables
     ////////////////////////////////////////////////////////////////////////////
     /** The AI itself. */
     final private ConnectFourAi ai;
+    
+    /**
+     * Game which notifies the {@link ConnectFourAi#getPonderListener() ponder
+     * listener} of the AI or null if the game does not emit events.
+     */
+    private final IConnectFourEventEmitting ponderGame;
+    
+    /** Whether the ponder listener has been added to {@link #ponderGame}. */
+    private boolean ponderListenerAdded = false;
+    
+    /** The last submitted move or null. */
+    private AiScheduler.ScheduledMove scheduledMove;
+    
+    /** Offers a move rejected by the scheduler again. */
+    private final Timer retryTimer = new Timer( retryDelay,
+        new ActionListener() {
+            @Override
+            public void actionPerformed( ActionEvent e )
+            {
+                offerMove();
+            }
+        } );
+    
+    /** Shows the progress of the search in the status bar. */
+    private final SearchProgressListener onSearchProgress =
+        new SearchProgressListener() {
+            @Override
+            public void searchProgress( final SearchProgressEvent e )
+            {
+                if( e.isFinished() || e.getBestMove() < 0 )
+                    return;
+                SwingUtilities.invokeLater( new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        ConnectFour.getStatusBar().setText(
+                            ConnectFour.tr( "AI is thinking." ) + " "
+                            + String.format( ConnectFour.tr(
+                                "Depth %d, best column %d, %d knodes/s" ),
+                                e.getDepth(), e.getBestMove() + 1,
+                                e.getNodesPerSecond() / 1000 ) );
+                    }
+                } );
+            }
+        };
 
     ////////////////////////////////////////////////////////////////////////////
     // Constructors
     ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Shorthand for {@link #AiPlayer(LocalConnectFour, int, double, long)
+     * AiPlayer(game, recDepth, difficulty, 0)}.
+     */
+    public AiPlayer( LocalConnectFour game, int recDepth, double difficulty )
+    {
+        this( game, recDepth, difficulty, 0 );
+    }
+    
+    /**
+     * Shorthand for {@link #AiPlayer(LocalConnectFour, int, double, long,
+     * long) AiPlayer(game, recDepth, difficulty, timeBudget, 0)}.
+     */
+    public AiPlayer( LocalConnectFour game, int recDepth, double difficulty,
+                     long timeBudget )
+    {
+        this( game, recDepth, difficulty, timeBudget, 0 );
+    }
+    
     /**
      * @param game Game to operate on.
-     * @param recDepth Recursion depth.
+     * @param recDepth Maximum recursion depth.
      * @param difficulty Difficulty between 0 and 1 (or equal to 0 or 1).
+     * @param timeBudget Maximum time in milliseconds the AI may think about a
+     *     move or 0 to do not limit the time.
+     * @param ponderBudget Maximum elapsed time in milliseconds the AI may
+     *     think while the opponent has to move or 0 to do not ponder. Pondering is only
+     *     possible if the game emits events.
      */
-    public AiPlayer( LocalConnectFour game, int recDepth, double difficulty )
+    public AiPlayer( LocalConnectFour game, int recDepth, double difficulty,
+                     long timeBudget, long ponderBudget )
     {
+        retryTimer.setRepeats( false );
         ai = new ConnectFourAi( game, recDepth, difficulty );
+        ai.setTimeBudget( timeBudget );
+        ai.addSearchProgressListener( onSearchProgress );
+        if( game instanceof IConnectFourEventEmitting )
+        {
+            ai.setPonderBudget( ponderBudget );
+            ponderGame = (IConnectFourEventEmitting) game;
+        }
+        else
+            ponderGame = null;
     }
     
     ////////////////////////////////////////////////////////////////////////////
@@ -61,14 +167,68 @@ public class AiPlayer implements IPlayer
     public void move()
     {
         ConnectFour.getGameView().setEnabled( false );
+        if( ponderGame != null && !ponderListenerAdded )
+        {
+            ponderGame.addMoveDoneListener( getAi().getPonderListener() );
+            ponderListenerAdded = true;
+        }
+        offerMove();
+    }
+    
+    /**
+     * Offers the move to the shared scheduler without blocking. If it is
+     * rejected, because the scheduler has reached its capacity, the {@link
+     * #retryTimer retryTimer} offers it again.
+     */
+    private void offerMove()
+    {
         ConnectFour.getStatusBar().setText(
             ConnectFour.tr( "AI is thinking." ) );
-        new Thread( getAi() ).start();
+        scheduledMove = AiScheduler.getShared().offer( getAi().getGame(),
+                                                       getAi() );
+        if( scheduledMove == null )
+        {
+            ConnectFour.getStatusBar().setText(
+                ConnectFour.tr( "AI is waiting for a free worker." ) );
+            retryTimer.restart();
+        }
     }
 
+    /**
+     * Cancels a running search and waits for it to end. Pondering is stopped
+     * and the ponder listener removed from the game, too. The player can
+     * still be used to make moves afterwards, which adds the listener
+     * again.
+     */
     @Override
     public void unregister()
     {
+        retryTimer.stop();
+        if( scheduledMove != null )
+        {
+            scheduledMove.cancel();
+            boolean interrupted = false;
+            while( !scheduledMove.isDone() )
+            {
+                try
+                {
+                    scheduledMove.await();
+                }
+                catch( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+            if( interrupted )
+                Thread.currentThread().interrupt();
+            scheduledMove = null;
+        }
+        getAi().stopPondering();
+        if( ponderListenerAdded )
+        {
+            ponderGame.removeMoveDoneListener( getAi().getPonderListener() );
+            ponderListenerAdded = false;
+        }
     }
     
     ////////////////////////////////////////////////////////////////////////////
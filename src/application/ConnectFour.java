@@ -69,6 +69,7 @@ import connectfour.game.IConnectFourEventEmitting;
 import connectfour.game.LocalConnectFourEventEmitting;
 import connectfour.game.MoveDoneAdapter;
 import connectfour.game.MoveDoneEvent;
+import connectfour.game.OpeningBook;
 import connectfour.game.RemoteCfAdapter;
 import connectfour.game.RemoteCfEvent;
 import connectfour.game.RemoteCfListener;
@@ -168,7 +169,11 @@ public class ConnectFour
         s.add( new SettingSelectOneItem( "newgame/mode/human", true, 0 ) );
         s.add( new SettingSelectOneItem( "newgame/mode/ai", false, 1 ) );
         s.add( new SettingInt( "newgame/mode/ai/recdepth", 5, 1, 10, 0 ) );
-        s.add( new SettingDouble( "newgame/mode/ai/difficulty", 1, 0.75, 1, 1 ) );
+        s.add( new SettingDouble( "newgame/mode/ai/difficulty", 1, 0, 1, 1 ) );
+        s.add( new SettingDouble( "newgame/mode/ai/thinktime", 0, 0, 60, 2 ) );
+        s.add( new SettingInt( "newgame/mode/ai/threads", 1, 1, 64, 3 ) );
+        s.add( new SettingDouble( "newgame/mode/ai/pondertime", 0, 0, 60, 4 ) );
+        s.add( new SettingFilename( "newgame/mode/ai/openingbook", "", 5 ) );
         s.add( new SettingSelectOneItem( "newgame/mode/host", false, 2 ) );
         s.add( new SettingInt( "newgame/mode/host/port", 34444, 1024, 65535, 0 ) );
         s.add( new SettingString( "newgame/mode/host/password", "", 1 ) );
@@ -243,6 +248,11 @@ public class ConnectFour
             @Override
             public void windowClosing( WindowEvent e )
             {
+                for( IPlayer player : getPlayers() )
+                {
+                    if( player != null )
+                        player.unregister();
+                }
                 SettingInt.get( s, "mainwindow/width" ).setValue(
                     ((JFrame) e.getSource()).getWidth() );
                 SettingInt.get( s, "mainwindow/height" ).setValue(
@@ -655,10 +665,36 @@ public class ConnectFour
                 players[1] = new HumanPlayer(
                     SettingString.get( s, "newgame/player2" ).getValue() );
             else if( SettingBoolean.get( s, "newgame/mode/ai" ).getValue() )
-                players[1] = new AiPlayer( game,
+            {
+                AiPlayer ai = new AiPlayer( game,
                     SettingInt.get( s, "newgame/mode/ai/recdepth" ).getValue(),
                     SettingDouble.get( s, "newgame/mode/ai/difficulty" )
-                        .getValue() );
+                        .getValue(),
+                    (long) (1000 * SettingDouble.get(
+                        s, "newgame/mode/ai/thinktime" ).getValue()),
+                    (long) (1000 * SettingDouble.get(
+                        s, "newgame/mode/ai/pondertime" ).getValue()) );
+                ai.getAi().setThreads(
+                    SettingInt.get( s, "newgame/mode/ai/threads" ).getValue() );
+                String bookFile = SettingFilename.get(
+                    s, "newgame/mode/ai/openingbook" ).getValue();
+                if( bookFile.length() > 0 )
+                {
+                    try
+                    {
+                        ai.getAi().setOpeningBook(
+                            new OpeningBook( new File( bookFile ) ) );
+                    }
+                    catch( IOException ex )
+                    {
+                        JOptionPane.showMessageDialog( getMainWindow(),
+                            tr( "Error reading opening book: " ) + ex.toString(),
+                            tr( "Input read error" ),
+                            JOptionPane.ERROR_MESSAGE );
+                    }
+                }
+                players[1] = ai;
+            }
             else if( SettingBoolean.get( s, "newgame/mode/host" ).getValue() )
             {
                 int port = SettingInt.get( s, "newgame/mode/host/port" )
@@ -780,6 +816,11 @@ public class ConnectFour
             }
             
             getPlayers()[getGame().getCurrentPlayer().ordinal()].unregister();
+            for( IPlayer player : getPlayers() )
+            {
+                if( player instanceof AiPlayer )
+                    ((AiPlayer) player).getAi().stopPondering();
+            }
             
             int[] move = getGame().undo();
             getGameView().setField( move[0], move[1],
@@ -0,0 +1,539 @@
+/* ConnectFour
+ * File: AiScheduler.java
+ * Creation: 20.10.2026 09:14:30
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the moves of {@link ConnectFourAi AIs} on a fixed number of worker
+ * threads shared by many games.
+ * <p>
+ * Every game has its own queue of moves. The games with pending moves take
+ * turns in a round robin, so that one game cannot delay the others by
+ * submitting many moves. The moves of one game are never run concurrently,
+ * because they usually share the game and the AI objects.
+ * <p>
+ * The number of pending moves is limited. {@link #submit(Object,
+ * ConnectFourAi) submit()} waits while the limit is reached and {@link
+ * #offer(Object, ConnectFourAi) offer()} rejects the move instead.
+ * <p>
+ * The number of workers limits only the threads running the moves. Pondering
+ * and the helper threads of an AI searching with several threads are started
+ * by the AI itself and are not counted.
+ * <p>
+ * When running the AIs of many games, these should use the {@link
+ * ConnectFourAi#getSharedTranspositionTable() shared transposition table} to
+ * limit the used memory. Its entries are keyed by the game and evaluation
+ * settings, so that games with different settings do not mix.
+ */
+public class AiScheduler
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * A move submitted to the scheduler.
+     */
+    public static class ScheduledMove
+    {
+        /** States of a move. */
+        private enum State { PENDING, RUNNING, DONE }
+        
+        /** Key of the game of the move. */
+        private final Object game;
+        
+        /** AI which has to move. */
+        private final ConnectFourAi ai;
+        
+        /** Token to cancel the move. */
+        private final CancellationToken token = new CancellationToken();
+        
+        /** Time in nanoseconds at which the move was submitted. */
+        private final long submitTime = System.nanoTime();
+        
+        /** Current state. */
+        private State state = State.PENDING;
+        
+        /** Scheduler of the move. */
+        private final AiScheduler scheduler;
+        
+        /**
+         * @param scheduler Scheduler of the move.
+         * @param game Key of the game of the move.
+         * @param ai AI which has to move.
+         */
+        private ScheduledMove( AiScheduler scheduler, Object game,
+                               ConnectFourAi ai )
+        {
+            this.scheduler = scheduler;
+            this.game = game;
+            this.ai = ai;
+        }
+        
+        /**
+         * Cancels the move. A pending move will not be run and a running
+         * search stops as soon as possible without doing a move.
+         */
+        public void cancel()
+        {
+            token.cancel();
+            boolean removed;
+            synchronized( this )
+            {
+                removed = (state == State.PENDING);
+                if( removed )
+                {
+                    state = State.DONE;
+                    notifyAll();
+                }
+            }
+            if( removed )
+                scheduler.removed( this );
+        }
+        
+        /**
+         * Waits until the move has been done or cancelled.
+         * @throws InterruptedException If the thread is interrupted while
+         *     waiting.
+         */
+        public synchronized void await() throws InterruptedException
+        {
+            while( state != State.DONE )
+                wait();
+        }
+        
+        /**
+         * @return Returns whether the move has been done or cancelled.
+         */
+        public synchronized boolean isDone()
+        {
+            return state == State.DONE;
+        }
+        
+        /**
+         * @return Returns whether the move has been cancelled.
+         */
+        public boolean isCancelled()
+        {
+            return token.isCancelled();
+        }
+        
+        /**
+         * Marks the move as running.
+         * @return False if the move has been cancelled before.
+         */
+        private synchronized boolean start()
+        {
+            if( state != State.PENDING )
+                return false;
+            state = State.RUNNING;
+            return true;
+        }
+        
+        /** Marks the move as done. */
+        private synchronized void finish()
+        {
+            state = State.DONE;
+            notifyAll();
+        }
+    }
+    
+    /** Queue of the moves of one game. */
+    private static class GameQueue
+    {
+        /** Pending moves. */
+        final LinkedList<ScheduledMove> moves = new LinkedList<ScheduledMove>();
+        
+        /** Whether a move of the game is running. */
+        boolean running = false;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Scheduler shared by all games of the program. */
+    private static AiScheduler shared;
+    
+    /** Standard maximum number of pending moves. */
+    private final static int stdCapacity = 1024;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Executes the workers. */
+    private final ThreadPoolExecutor executor;
+    
+    /** Maximum number of pending moves. */
+    private final int capacity;
+    
+    /** Queues of the games with pending or running moves. */
+    private final HashMap<Object, GameQueue> queues =
+        new HashMap<Object, GameQueue>();
+    
+    /**
+     * Games with pending moves and no running move in the order in which
+     * they get a worker.
+     */
+    private final LinkedList<Object> ready = new LinkedList<Object>();
+    
+    /** Number of pending moves. */
+    private int queueDepth = 0;
+    
+    /** Maximum number of pending moves reached so far. */
+    private int maxQueueDepth = 0;
+    
+    /** Number of running moves. */
+    private int activeWorkers = 0;
+    
+    /** Number of finished moves, including the cancelled ones. */
+    private long completed = 0;
+    
+    /** Number of moves rejected by {@link #offer(Object, ConnectFourAi)}. */
+    private long rejected = 0;
+    
+    /**
+     * Sum of the time in nanoseconds the started moves waited for a worker.
+     */
+    private long totalWaitTime = 0;
+    
+    /** Number of started moves. */
+    private long started = 0;
+    
+    /** Whether {@link #shutdown()} has been called. */
+    private boolean stopped = false;
+    
+    /** Takes the next ready game and runs one of its moves. */
+    private final Runnable worker = new Runnable() {
+        @Override
+        public void run()
+        {
+            runNext();
+        }
+    };
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param workers Number of worker threads.
+     * @param capacity Maximum number of pending moves.
+     */
+    public AiScheduler( int workers, int capacity )
+    {
+        if( workers < 1 || capacity < 1 )
+            throw new IllegalArgumentException(
+                "Workers and capacity have to be positive." );
+        this.capacity = capacity;
+        executor = new ThreadPoolExecutor( workers, workers, 0,
+            TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+                private int count = 0;
+                
+                @Override
+                public synchronized Thread newThread( Runnable r )
+                {
+                    Thread thread = new Thread( r, "ConnectFourAi worker "
+                                                   + (++count) );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns the scheduler shared by all games of the program. It
+     *     has one worker for each available processor.
+     */
+    public static synchronized AiScheduler getShared()
+    {
+        if( shared == null )
+            shared = new AiScheduler(
+                Runtime.getRuntime().availableProcessors(), stdCapacity );
+        return shared;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Submits a move. Waits while the maximum number of pending moves is
+     * reached.
+     * @param game Key identifying the game of the move, usually the game
+     *     object.
+     * @param ai The AI which has to move.
+     * @return The submitted move.
+     * @throws InterruptedException If the thread is interrupted while
+     *     waiting.
+     * @throws IllegalStateException If the scheduler has been shut down.
+     */
+    public ScheduledMove submit( Object game, ConnectFourAi ai )
+        throws InterruptedException
+    {
+        ScheduledMove move = new ScheduledMove( this, game, ai );
+        synchronized( this )
+        {
+            while( queueDepth >= capacity )
+                wait();
+            enqueue( game, move );
+        }
+        return move;
+    }
+    
+    /**
+     * Submits a move if the maximum number of pending moves is not reached.
+     * @param game Key identifying the game of the move, usually the game
+     *     object.
+     * @param ai The AI which has to move.
+     * @return The submitted move or null if it has been rejected.
+     * @throws IllegalStateException If the scheduler has been shut down.
+     */
+    public ScheduledMove offer( Object game, ConnectFourAi ai )
+    {
+        ScheduledMove move = new ScheduledMove( this, game, ai );
+        synchronized( this )
+        {
+            if( queueDepth >= capacity )
+            {
+                rejected++;
+                return null;
+            }
+            enqueue( game, move );
+        }
+        return move;
+    }
+    
+    /**
+     * Adds a move to the queue of its game. Has to be called with the lock
+     * of the scheduler held.
+     * @param game Key of the game.
+     * @param move The move.
+     * @throws IllegalStateException If the scheduler has been shut down.
+     */
+    private void enqueue( Object game, ScheduledMove move )
+    {
+        if( stopped )
+            throw new IllegalStateException(
+                "The scheduler has been shut down." );
+        GameQueue queue = queues.get( game );
+        if( queue == null )
+        {
+            queue = new GameQueue();
+            queues.put( game, queue );
+        }
+        queue.moves.add( move );
+        queueDepth++;
+        maxQueueDepth = Math.max( maxQueueDepth, queueDepth );
+        if( !queue.running && queue.moves.size() == 1 )
+        {
+            ready.add( game );
+            executor.execute( worker );
+        }
+    }
+    
+    /**
+     * Called when a pending move has been cancelled. Removes the move from
+     * the queue of its game and the game from the {@link #ready ready} games
+     * if it has no moves left.
+     * @param move The cancelled move.
+     */
+    private synchronized void removed( ScheduledMove move )
+    {
+        GameQueue queue = queues.get( move.game );
+        if( queue != null )
+        {
+            queue.moves.remove( move );
+            if( queue.moves.isEmpty() && !queue.running )
+            {
+                queues.remove( move.game );
+                ready.remove( move.game );
+            }
+        }
+        queueDepth--;
+        completed++;
+        notifyAll();
+    }
+    
+    /**
+     * Runs the next move of the next ready game. A worker is submitted to
+     * the executor for every entry added to {@link #ready ready}. Entries
+     * removed because their moves have been cancelled leave workers without
+     * a game, which return immediately.
+     */
+    private void runNext()
+    {
+        Object game;
+        ScheduledMove move;
+        synchronized( this )
+        {
+            if( ready.isEmpty() )
+                return;
+            game = ready.removeFirst();
+            GameQueue queue = queues.get( game );
+            move = queue.moves.removeFirst();
+            queue.running = true;
+            if( move.start() )
+            {
+                queueDepth--;
+                activeWorkers++;
+                started++;
+                totalWaitTime += System.nanoTime() - move.submitTime;
+                notifyAll();
+            }
+            else
+                move = null; // Cancelled and already counted.
+        }
+        
+        try
+        {
+            if( move != null )
+                move.ai.move( move.token );
+        }
+        finally
+        {
+            if( move != null )
+                move.finish();
+            synchronized( this )
+            {
+                if( move != null )
+                {
+                    activeWorkers--;
+                    completed++;
+                }
+                GameQueue queue = queues.get( game );
+                queue.running = false;
+                if( queue.moves.isEmpty() )
+                    queues.remove( game );
+                else if( !stopped )
+                {
+                    /* The game has to wait for its next turn. */
+                    ready.add( game );
+                    executor.execute( worker );
+                }
+                /* Otherwise the pending moves are being cancelled by
+                 * shutdown(), which removes the queue with the last move.
+                 */
+            }
+        }
+    }
+    
+    /**
+     * Stops the worker threads after the running moves. Pending moves are
+     * cancelled, so that threads waiting for them continue. No moves can be
+     * submitted afterwards.
+     */
+    public void shutdown()
+    {
+        LinkedList<ScheduledMove> pending = new LinkedList<ScheduledMove>();
+        synchronized( this )
+        {
+            stopped = true;
+            for( GameQueue queue : queues.values() )
+                pending.addAll( queue.moves );
+        }
+        for( ScheduledMove move : pending )
+            move.cancel();
+        executor.shutdown();
+    }
+    
+    /**
+     * Waits until the worker threads have stopped after a {@link #shutdown()
+     * shutdown}.
+     * @param timeout Maximum time to wait in milliseconds.
+     * @return False if the timeout elapsed before the workers stopped.
+     * @throws InterruptedException If the thread is interrupted while
+     *     waiting.
+     */
+    public boolean awaitTermination( long timeout ) throws InterruptedException
+    {
+        return executor.awaitTermination( timeout, TimeUnit.MILLISECONDS );
+    }
+    
+    /**
+     * @return Returns the average time in milliseconds the started moves
+     *     waited for a worker.
+     */
+    public synchronized double getAverageWaitTime()
+    {
+        return (started > 0) ? totalWaitTime / 1e6 / started : 0;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Simple Getters & Setters
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns the number of moves waiting for a worker.
+     */
+    public synchronized int getQueueDepth()
+    {
+        return queueDepth;
+    }
+    
+    public synchronized int getMaxQueueDepth()
+    {
+        return maxQueueDepth;
+    }
+    
+    /**
+     * @return Returns the number of running moves.
+     */
+    public synchronized int getActiveWorkers()
+    {
+        return activeWorkers;
+    }
+    
+    public int getWorkers()
+    {
+        return executor.getCorePoolSize();
+    }
+    
+    public int getCapacity()
+    {
+        return capacity;
+    }
+    
+    /**
+     * @return Returns the number of finished moves, including the cancelled
+     *     ones.
+     */
+    public synchronized long getCompleted()
+    {
+        return completed;
+    }
+    
+    /**
+     * @return Returns the number of moves rejected because the maximum
+     *     number of pending moves was reached.
+     */
+    public synchronized long getRejected()
+    {
+        return rejected;
+    }
+}
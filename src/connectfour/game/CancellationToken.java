@@ -0,0 +1,56 @@
+/* ConnectFour
+ * File: CancellationToken.java
+ * Creation: 19.10.2026 16:20:51
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+/**
+ * Token to cancel a running operation, e.g. a search of {@link ConnectFourAi
+ * ConnectFourAi}, from another thread. The operation checks the token
+ * regularly and stops as soon as possible after it has been cancelled.
+ */
+public class CancellationToken
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Set when the operation has been cancelled. */
+    private volatile boolean cancelled = false;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Cancels the operation. A cancelled token cannot be reset.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Simple Getters & Setters
+    ////////////////////////////////////////////////////////////////////////////
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+}
@@ -24,6 +24,8 @@ package connectfour.game;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import connectfour.game.IConnectFour.Players;
 
@@ -32,6 +34,66 @@ import connectfour.game.IConnectFour.Players;
  */
 public class ConnectFourAi implements Runnable
 {
+    ////////////////////////////////////////////////////////////////////////////
+    // Enumerations
+    ////////////////////////////////////////////////////////////////////////////
+    /** Available functions to rate positions at the leafs of the search. */
+    public enum Evaluation
+    {
+        /**
+         * Rates the runs of discs in the rows, columns and diagonals. The
+         * rating is updated incrementally with every move by rating the lines
+         * through the changed field again.
+         * @see ConnectFourAi#rate(LocalConnectFour)
+         * @see RunEvaluator
+         */
+        RUNS,
+        /**
+         * Rates the lines of winLength fields still usable by a player. The
+         * rating is updated incrementally with every move.
+         * @see WindowEvaluator
+         */
+        WINDOWS
+    }
+    
+    /** Available search algorithms. */
+    public enum Algorithm
+    {
+        /** Minmax search with alpha/beta cut offs. */
+        ALPHA_BETA,
+        /**
+         * Principal variation search: All moves but the first are searched
+         * with a null window first and only searched again with the full
+         * window if they turn out to be better than the first move.
+         */
+        PVS
+    }
+    
+    /** Heuristics to order the moves searched in each node. */
+    public enum MoveOrdering
+    {
+        /**
+         * Search the best move stored in the transposition table for the
+         * position first.
+         */
+        HASH_MOVE,
+        /**
+         * Search the last two moves which caused a cut off in the same ply
+         * (killer moves) next.
+         */
+        KILLER_MOVES,
+        /**
+         * Order the remaining moves by how often and how deep the fields they
+         * occupy have caused cut offs (history heuristic).
+         */
+        HISTORY,
+        /**
+         * Order moves starting in the center columns. This order is used for
+         * moves ranked equally by the other heuristics.
+         */
+        CENTER_FIRST
+    }
+    
     ////////////////////////////////////////////////////////////////////////////
     // Member Variables
     ////////////////////////////////////////////////////////////////////////////
@@ -56,9 +118,304 @@ public class ConnectFourAi implements Runnable
     private int recDepth;
     
     /**
-     * Difficulty. Has to be 0 <= difficulty <= 1. 1 is hardest, 0 is easiest. 
+     * Difficulty. Has to be 0 <= difficulty <= 1. 1 is hardest, 0 is easiest.
+     * Below 1 the recursion depth and the budgets of the search are reduced
+     * in proportion to the difficulty and {@link #rootNoise noise} is added
+     * to the ratings of the moves at the root. Opening book and endgame
+     * solver are only used at difficulty 1.
      */
     private double difficulty;
+    
+    /**
+     * Maximum noise added to the ratings of the root moves at difficulty 0.
+     * The maximum noise decreases linearly to 0 at difficulty 1.
+     */
+    private int maxRootNoise = 100;
+    
+    /**
+     * Noise added to the rating of each column at the root of the current
+     * search or null if no noise is added. Win and loss ratings are not
+     * changed.
+     */
+    private int[] rootNoise;
+    
+    /** Table shared by all AIs created without an own table. */
+    private static TranspositionTable sharedTable;
+    
+    /**
+     * Cache for the results of already searched positions. Set to null to
+     * search without a cache. The table may be shared with other AIs, even
+     * of other games.
+     */
+    private TranspositionTable transpositionTable;
+    
+    /**
+     * Lookups and stores of the {@link #transpositionTable transposition
+     * table} during the last search. Each AI counts its own, so that no
+     * counters are shared between threads. The counts of the {@link #helpers
+     * helpers} are added after they have stopped.
+     */
+    private final TranspositionTable.Statistics tableStatistics =
+        new TranspositionTable.Statistics();
+    
+    /**
+     * Key of the game and evaluation settings which is combined with the
+     * hashes stored in the {@link #transpositionTable transposition table}.
+     */
+    private long settingsKey;
+    
+    /**
+     * Maximum time in milliseconds a search may take. The search will use the
+     * result of the deepest completed iteration when the time runs out. Set
+     * to 0 to do not limit the time.
+     */
+    private long timeBudget = 0;
+    
+    /**
+     * Maximum number of nodes a search may visit. Set to 0 to do not limit
+     * the number of nodes.
+     */
+    private long nodeBudget = 0;
+    
+    /** Number of nodes visited in the current search. */
+    private long nodes;
+    
+    /** Time in nanoseconds at which the current search started. */
+    private long searchStart;
+    
+    /** Set when the time or node budget has run out during the search. */
+    private boolean searchAborted;
+    
+    /**
+     * Set by {@link #minmax(int, int, int, boolean) minmax()} if the returned
+     * rating has been derived from a lowered win rating. Such a rating
+     * depends on the distance to the root and is not stored in the {@link
+     * #transpositionTable transposition table}.
+     */
+    private boolean ratingScaled;
+    
+    /** Recursion depth of the current iteration of the search. */
+    private int rootDepth;
+    
+    /** Whether the root position of the search equals its mirror image. */
+    private boolean rootSymmetric;
+    
+    /**
+     * Best move found by the deepest completed iteration of the current
+     * search. Before the first iteration completed, this is any valid move.
+     */
+    private volatile int bestRootMove = -1;
+    
+    /** Search algorithm. */
+    private Algorithm algorithm = Algorithm.ALPHA_BETA;
+    
+    /**
+     * Half width of the aspiration window searched around the rating of the
+     * previous iteration. Set to 0 to always search the full window.
+     */
+    private int aspirationWindow = 0;
+    
+    /** Enabled move ordering heuristics. */
+    private EnumSet<MoveOrdering> moveOrdering =
+        EnumSet.allOf( MoveOrdering.class );
+    
+    /* Enabled heuristics of moveOrdering cached for the current search. */
+    private boolean orderHashMove, orderKillerMoves, orderHistory,
+                    orderCenterFirst;
+    
+    /** Columns ordered from the center to the borders. */
+    private int[] centerOrder;
+    
+    /**
+     * Moves to search in each {@link #ply ply} in the order in which they are
+     * searched.
+     */
+    private int[][] moveLists;
+    
+    /** Ranks of the moves in {@link #moveLists moveLists}. */
+    private int[][] moveRanks;
+    
+    /**
+     * Two killer moves for each {@link #ply ply}: The last two different
+     * moves which caused a cut off in this ply.
+     */
+    private int[][] killerMoves;
+    
+    /**
+     * History heuristic. The entry for a disc of the player with the ordinal p
+     * in row i and column j is stored at history[p][j * rows + i] and is
+     * increased by the square of the recursion depth whenever dropping this
+     * disc causes a cut off.
+     */
+    private int[][] history;
+    
+    /** Number of cut offs in the last search. */
+    private long cutoffs;
+    
+    /** Number of cut offs caused by the first searched move. */
+    private long firstMoveCutoffs;
+    
+    /** Function used to rate positions. */
+    private Evaluation evaluation = Evaluation.RUNS;
+    
+    /**
+     * Keeps the rating of {@link #gameCopy gameCopy} up to date during a
+     * search if {@link #evaluation evaluation} is {@link Evaluation#RUNS
+     * Evaluation.RUNS}, otherwise null.
+     */
+    private RunEvaluator runEvaluator;
+    
+    /**
+     * Keeps the rating of {@link #gameCopy gameCopy} up to date during a
+     * search if {@link #evaluation evaluation} is {@link Evaluation#WINDOWS
+     * Evaluation.WINDOWS}, otherwise null.
+     */
+    private WindowEvaluator windowEvaluator;
+    
+    /**
+     * Whether threats are used to find forced moves, to prune moves and to
+     * rate positions.
+     * @see ThreatAnalyzer
+     */
+    private boolean threatAnalysis = true;
+    
+    /**
+     * Finds the threats in {@link #gameCopy gameCopy} if {@link
+     * #threatAnalysis threatAnalysis} is set, otherwise null.
+     */
+    private ThreatAnalyzer threatAnalyzer;
+    
+    /** Number of threads used for the search. */
+    private int threads = 1;
+    
+    /**
+     * AIs searching the same position in additional threads. Each helper
+     * operates on its own copy of the game and shares the transposition table
+     * with this AI, so that the helpers fill the table with results which
+     * this AI can use (Lazy SMP).
+     */
+    private ConnectFourAi[] helpers = new ConnectFourAi[0];
+    
+    /** Number of moves done from the root position of the search. */
+    private int ply;
+    
+    /** Best move found at each {@link #ply ply} of the search. */
+    private int[] bestMoves;
+    
+    /**
+     * Principal variation at each {@link #ply ply} of the search. The moves
+     * of the principal variation of ply i are stored in pvMoves[i], starting
+     * with the best move in ply i.
+     */
+    private int[][] pvMoves;
+    
+    /** Length of the principal variation at each {@link #ply ply}. */
+    private int[] pvLength;
+    
+    /**
+     * Principal variation of the deepest completed iteration of the last
+     * search.
+     */
+    private int[] principalVariation = new int[0];
+    
+    /**
+     * Maximum elapsed time in milliseconds to ponder after a move. Set to 0
+     * to do not ponder.
+     * @see #startPondering(LocalConnectFour)
+     */
+    private long ponderBudget = 0;
+    
+    /** AI searching the position after a move while the opponent thinks. */
+    private ConnectFourAi ponderer;
+    
+    /** Thread of the {@link #ponderer ponderer} or null. */
+    private Thread ponderThread;
+    
+    /** Player to move in the position the ponderer searches. */
+    private volatile Players ponderPlayer;
+    
+    /** Number of nodes searched while pondering. */
+    private long ponderNodes;
+    
+    /**
+     * Stops pondering when the opponent moves. Has to be added to the game
+     * to ponder.
+     * @see #getPonderListener()
+     */
+    private final MoveDoneListener ponderListener = new MoveDoneListener() {
+        @Override
+        public void moveDone( MoveDoneEvent e )
+        {
+            if( e.getPlayer() == ponderPlayer )
+                stopPondering();
+        }
+    };
+    
+    /** Set to stop the running search as soon as possible. */
+    private volatile boolean stopRequested = false;
+    
+    /**
+     * Token to cancel the current call of {@link #move(CancellationToken)
+     * move()} or null.
+     */
+    private CancellationToken cancellationToken;
+    
+    /** Listeners notified about the progress of the search. */
+    private final CopyOnWriteArrayList<SearchProgressListener>
+        progressListeners = new CopyOnWriteArrayList<SearchProgressListener>();
+    
+    /** Interval in milliseconds between two progress events. */
+    private long progressInterval = 250;
+    
+    /** Time in nanoseconds at which the next progress event is due. */
+    private long nextProgress;
+    
+    /** Recursion depth of the deepest completed iteration of the search. */
+    private volatile int completedDepth;
+    
+    /** Rating of {@link #bestRootMove bestRootMove}. */
+    private volatile int bestRootRating;
+    
+    /**
+     * Positions with at most this number of remaining moves are solved
+     * exactly by the {@link #endgameSolver endgame solver} instead of being
+     * searched with the heuristic search. Set to 0 to disable the solver.
+     */
+    private int endgameThreshold = 20;
+    
+    /**
+     * Maximum number of nodes the endgame solver may visit if no {@link
+     * #nodeBudget node budget} is set. If the solver exceeds its limit, the
+     * heuristic search is used.
+     */
+    private final static long endgameNodeLimit = 5000000;
+    
+    /** Solver for endgame positions. Created when it is used first. */
+    private EndgameSolver endgameSolver;
+    
+    /**
+     * Book with the best moves for the first positions of the game. Set to
+     * null to search every position.
+     */
+    private OpeningBook openingBook;
+    
+    /**
+     * Rating of the move done by the last call of {@link #move() move()} from
+     * the view of the AI.
+     */
+    private int bestRating;
+    
+    /**
+     * Random number generator of the search. Used to choose between equally
+     * rated moves and to make mistakes depending on the difficulty.
+     */
+    private final XorShiftRandom random = new XorShiftRandom();
+    
+    /** Seed of the random number generator for the next search. */
+    private long nextSeed = XorShiftRandom.newSeed();
+    
+    /** Seed of the random number generator used by the last search. */
+    private long searchSeed;
 
     ////////////////////////////////////////////////////////////////////////////
     // Constructors
@@ -82,16 +439,78 @@ public class ConnectFourAi implements Runnable
     }
     
     /**
+     * Creates an AI using the {@link #getSharedTranspositionTable() shared
+     * transposition table}.
      * @param game The in game in which the AI is a player.
      * @param recDepth Recursion depth.
      * @param difficulty Difficulty of AI.
      */
     public ConnectFourAi( LocalConnectFour game, int recDepth,
                           double difficulty )
+    {
+        this( game, recDepth, difficulty, getSharedTranspositionTable() );
+    }
+    
+    /**
+     * @param game The in game in which the AI is a player.
+     * @param recDepth Recursion depth.
+     * @param difficulty Difficulty of AI.
+     * @param transpositionTable Cache for search results. May be null to
+     *     disable caching.
+     */
+    public ConnectFourAi( LocalConnectFour game, int recDepth,
+                          double difficulty,
+                          TranspositionTable transpositionTable )
     {
         setGame( game );
         setRecDepth( recDepth );
         setDifficulty( difficulty );
+        setTranspositionTable( transpositionTable );
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns the transposition table shared by all AIs created
+     *     without an own table. It is created with the {@link
+     *     TranspositionTable#getStdMemoryBudget() standard memory budget} on
+     *     first use.
+     */
+    public static synchronized TranspositionTable getSharedTranspositionTable()
+    {
+        if( sharedTable == null )
+            sharedTable = new TranspositionTable();
+        return sharedTable;
+    }
+    
+    /**
+     * @param game A game.
+     * @return Returns the number of diagonals in each direction which are
+     *     long enough to contain winLength discs.
+     */
+    static int getDiagonalCount( LocalConnectFour game )
+    {
+        return Math.max( 0, game.getColumns() + game.getRows()
+                            - 2 * (game.getWinLength() - 1) );
+    }
+    
+    /**
+     * @param game A game.
+     * @param row A row.
+     * @param column A column.
+     * @return Returns 1 if the field is occupied by the first player, -1 if
+     *     it is occupied by the second player and 0 if it is empty.
+     */
+    private static int getOccupation( LocalConnectFour game, int row,
+                                      int column )
+    {
+        switch( game.getField( row, column ) )
+        {
+            case FIRST:  return 1;
+            case SECOND: return -1;
+            default:     return 0;
+        }
     }
     
     ////////////////////////////////////////////////////////////////////////////
@@ -138,8 +557,45 @@ public class ConnectFourAi implements Runnable
         return ((x < 0) == (y < 0)) ? (x + y) : y;
     }
     
+    /**
+     * Checks whether the time or node budget of the search has run out and
+     * sets {@link #searchAborted searchAborted} accordingly. The first
+     * iteration is never aborted, so that there is always a searched move,
+     * unless the search has been cancelled. Progress events are fired from
+     * here when they are due.
+     */
+    protected void checkBudget()
+    {
+        if( stopRequested || (cancellationToken != null
+                              && cancellationToken.isCancelled()) )
+        {
+            searchAborted = true;
+            return;
+        }
+        if( !progressListeners.isEmpty() && System.nanoTime() >= nextProgress )
+        {
+            nextProgress = System.nanoTime() + 1000000 * getProgressInterval();
+            fireSearchProgress( false );
+        }
+        if( getRootDepth() <= 1 )
+            return;
+        if( (getNodeBudget() > 0 && getNodes() >= getSearchNodeBudget())
+            || (getTimeBudget() > 0
+                && getElapsedTime() >= getSearchTimeBudget()) )
+            searchAborted = true;
+    }
+    
     /**
      * Minmax algorithm with Alpha/Beta cut offs for finding the best move.
+     * If the {@link #algorithm algorithm} is {@link Algorithm#PVS
+     * Algorithm.PVS}, all moves but the first are searched with a null window
+     * first. Results are stored in and, except for the root of the search, taken
+     * from the {@link #transpositionTable transposition table}. The moves
+     * are searched in the order determined by {@link #orderMoves(int[], int,
+     * boolean) orderMoves()}.
+     * The function does not allocate any memory. The best move found is
+     * stored in {@link #bestMoves bestMoves} and the principal variation in
+     * {@link #pvMoves pvMoves} at the index of the current {@link #ply ply}.
      * @param recdepth Recursion depth.
      * @param alpha Alpha value.
      * @param beta Beta value. No move with a rating above this would be chosen
@@ -147,155 +603,1055 @@ public class ConnectFourAi implements Runnable
      * @param lowerWinRating If set to true the win rating will be divided by
      *     the number of possible moves which do not end the game. The value
      *     of this argument will be toggled in each recursion step.
-     * @return An array with the length two. The first element is the rating
-     *     for the best move found. The second is the column of this move.
+     * @return The rating for the best move found. A rating below alpha is an
+     *     upper bound and a rating above beta a lower bound of the real
+     *     rating. If the search has been aborted, the return value is
+     *     meaningless. {@link #ratingScaled ratingScaled} is set if the rating
+     *     has been derived from a lowered win rating.
      */
-    protected int[] minmax( int recdepth, int alpha, int beta,
-                            boolean lowerWinRating )
+    protected int minmax( int recdepth, int alpha, int beta,
+                          boolean lowerWinRating )
     {
-        int ret[] = null;
         int bestMove = -1;
+        final boolean noisy = rootNoise != null && recdepth == getRootDepth();
+        
+        if( (++nodes & 255) == 0 )
+            checkBudget();
+        if( isSearchAborted() )
+            return 0;
+        pvLength[ply] = 0;
+        ratingScaled = false;
 
         /* Rate if the recursion base is reached. */
         if( recdepth <= 0 )
         {
-            ret = new int[2];
-            ret[0] = rate( getGameCopy() );
+            int rating = evaluate();
             if( getGameCopy().getCurrentPlayer() == Players.SECOND )
-                ret[0] *= -1;
-            return ret;
+                rating *= -1;
+            return rating;
         }
         
+        /* Look up whether the position has already been searched deep
+         * enough. At the root a move has to be searched in any case.
+         */
+        final TranspositionTable tt = getTranspositionTable();
+        final long hash = getGameCopy().getCanonicalHash() ^ settingsKey;
+        final boolean mirrored = getGameCopy().isCanonicalMirrored();
+        int firstMove = (recdepth == getRootDepth()) ? getBestRootMove() : -1;
+        if( tt != null && recdepth < getRootDepth() )
+        {
+            final long entry = tt.probe( hash, tableStatistics );
+            if( entry != 0 )
+            {
+                firstMove = orient( TranspositionTable.getMove( entry ),
+                                    mirrored );
+                if( TranspositionTable.getDepth( entry ) >= recdepth )
+                {
+                    final int score = TranspositionTable.getScore( entry );
+                    final TranspositionTable.Bound bound =
+                        TranspositionTable.getBound( entry );
+                    if( bound == TranspositionTable.Bound.EXACT
+                        || (bound == TranspositionTable.Bound.LOWER
+                            && score > beta)
+                        || (bound == TranspositionTable.Bound.UPPER
+                            && score < alpha) )
+                    {
+                        bestMoves[ply] = firstMove;
+                        return score;
+                    }
+                }
+            }
+        }
+        final int alphaOrig = alpha;
+        
         /* Search all possible moves. */
         int wouldEndGame = 0; // Number moves which would end the game.
                               // Used to improve the rating.
-        for( int i = 0; i < getGameCopy().getColumns(); i++ )
+        int rating = 0, lastMove = -1;
+        int maxRating = Integer.MIN_VALUE; // Highest rating of all moves.
+        /* Whether the rating of the best move and the highest rating have
+         * been derived from a lowered win rating.
+         */
+        boolean bestScaled = false, maxScaled = false;
+        final int[] moves = moveLists[ply];
+        final int moveCount = orderMoves( moves, firstMove,
+                                          recdepth == getRootDepth() );
+        for( int k = 0; k < moveCount; k++ )
         {
-            if( !getGameCopy().doMove( i ) )
+            final int i = moves[k];
+            if( !doSearchMove( i ) )
                 continue;
+            
+            /* The noise of a root move is subtracted from the window, so that
+             * the move is searched as if its rating included the noise.
+             */
+            final int noise = noisy ? rootNoise[i] : 0;
+            final int a = addRootNoise( alpha, -noise );
+            final int b = addRootNoise( beta, -noise );
 
+            ply++;
             if( getGameCopy().isGameFinished() )
             {
                 /* If game is finished rate directly. */
-                ret = minmax( 0, -beta, -alpha, !lowerWinRating );
+                rating = -minmax( 0, -b, -a, !lowerWinRating );
                 wouldEndGame++;
             }
+            else if( k == 0 || getAlgorithm() != Algorithm.PVS )
+                rating = -minmax( recdepth - 1, -b, -a, !lowerWinRating );
             else
-                ret = minmax( recdepth - 1, -beta, -alpha, !lowerWinRating );
-            getGameCopy().undo();
+            {
+                /* Check with a null window whether the move is better than
+                 * the best move so far and only search it with the full
+                 * window if it is. Because minmax fails soft, a rating above
+                 * beta is a lower bound which suffices for a cut off.
+                 */
+                rating = -minmax( recdepth - 1, -a - 1, -a, !lowerWinRating );
+                if( rating > a && rating <= b && !isSearchAborted() )
+                    rating = -minmax( recdepth - 1, -b, -a, !lowerWinRating );
+            }
+            rating = addRootNoise( rating, noise );
+            final boolean childScaled = ratingScaled;
+            ply--;
+            undoSearchMove();
             
-            if( ret == null )
-                continue;
-            ret[0] *= -1;
-            ret[1] = i;
+            if( isSearchAborted() )
+                return 0;
+            lastMove = i;
+            if( rating > maxRating )
+            {
+                maxRating = rating;
+                maxScaled = childScaled;
+            }
             
-            if( ret[0] > beta && wouldEndGame == 0 )
+            if( rating > beta && wouldEndGame == 0 )
             {
-
-                return ret;
+                ratingScaled = childScaled;
+                if( tt != null && !noisy && !childScaled )
+                    tt.store( hash, recdepth, TranspositionTable.Bound.LOWER,
+                              rating, orient( i, mirrored ),
+                              tableStatistics );
+                bestMoves[ply] = i;
+                storeCutoff( i, recdepth, k == 0 );
+                return rating;
             }
             
-            /* Because the AI should not always use the same moves, there is
-             * a probability to replace the best move if the rating is equal.
-             */
-            if( (ret[0] > alpha && Math.random() < getDifficulty())
-                || (ret[0] == alpha && (bestMove == -1
-                                        || Math.random() < 0.3 ) ) )
+            if( rating > alpha
+                || (rating == alpha && (bestMove == -1
+                                        || replacesEqualMove()) ) )
             {
-                alpha = ret[0];
-                bestMove = ret[1];
+                alpha = rating;
+                bestMove = i;
+                bestScaled = childScaled;
+                updatePrincipalVariation( i );
             }
         }
         
+        boolean scaled = false; // Whether the rating depends on the distance
+                                // to the root.
         if( bestMove >= 0 )
         {
-            if( ret == null )
-                ret = new int[2];
-            ret[0] = alpha;
-            if( lowerWinRating && getRecDepth() - recdepth > 2
+            rating = alpha;
+            scaled = bestScaled;
+            if( lowerWinRating && getRootDepth() - recdepth > 2
                 && wouldEndGame > 0 )
-                ret[0] /= game.getColumns() - wouldEndGame;
-            ret[1] = bestMove;
-        }
-        return ret;
-    }
-
-    /**
-     * Tells the AI to make a move.
-     */
-    public void move()
-    {
-        synchronized( getGame() )
-        {
-            setGameCopy( getGame().clone() );
+            {
+                rating /= game.getColumns() - wouldEndGame;
+                scaled = true;
+            }
+            bestMoves[ply] = bestMove;
         }
-        
-        int move[] = minmax( getRecDepth(), -getWinRating(), getWinRating(),
-                             false );
-        
-        /* Ensure that we have a move. Nothing would be worse if the minmax
-         * function fails, but there would be a possibility for a move and the
-         * AI does not move. Of course the minmax function should always return
-         * a move (if there is one possible), but it's better to be save.
-         */
-        if( move == null )
+        else
         {
-            ArrayList<Integer> possibleMoves;
-            synchronized( getGame() )
+            /* No move reached alpha. The highest rating of all moves is
+             * returned, which is an upper bound of the real rating.
+             */
+            if( lastMove < 0 )
+                rating = minmax( 0, alpha, beta, lowerWinRating );
+            else
             {
-                possibleMoves = new ArrayList<Integer>( getGame().getColumns() );
-                for( int i = 0; i < getGame().getColumns(); i++ )
-                {
-                    if( getGame().isValidMove( i ) )
-                        possibleMoves.add( i );
-                }
+                rating = maxRating;
+                scaled = maxScaled;
             }
-            
-            move = new int[2];
-            move[1] = possibleMoves.get( (int) (Math.random()
-                                               * possibleMoves.size()) );
+            bestMoves[ply] = lastMove;
         }
         
-        synchronized( getGame() )
+        /* A lowered win rating and every rating derived from it depend on the
+         * distance to the root and must not be reused at another depth.
+         */
+        ratingScaled = scaled;
+        if( tt != null && !noisy && !scaled )
         {
-            getGame().doMove( move[1] );
+            final TranspositionTable.Bound bound;
+            if( rating < alphaOrig )
+                bound = TranspositionTable.Bound.UPPER;
+            else if( rating > beta )
+                bound = TranspositionTable.Bound.LOWER;
+            else
+                bound = TranspositionTable.Bound.EXACT;
+            tt.store( hash, recdepth, bound, rating,
+                      orient( bestMove, mirrored ), tableStatistics );
         }
+        return rating;
     }
     
     /**
-     * Rates a sequence of disks in a Row.
-     * @param freeBefore Number of free fields before the sequence.
-     * @param inRow Number of discs in a row. The sign determines the player.
-     * @param freeAfter Number of free fields after the sequence.
-     * @return Rating for the row sequence.
+     * @return Returns the recursion depth reduced according to the {@link
+     *     #difficulty difficulty}. It is at least 1.
      */
-    public int  rateRowSequence( int freeBefore, int inRow, int freeAfter )
+    private int getSearchDepth()
     {
-        if( freeBefore + Math.abs( inRow ) + freeAfter < game.getWinLength() )
-            return 0;
-        if( inRow > game.getWinLength() )
-            inRow = game.getWinLength();
-        else if( inRow < game.getWinLength() )
-            inRow = -game.getWinLength();
-        int rating = inRow * inRow;
-        if( freeBefore > 0 && freeAfter > 0 )
-            rating *= 3;
-        if( inRow < 0 )
-            rating *= -1;
-        return rating;
+        return Math.max( 1, (int) Math.ceil( getDifficulty()
+                                             * getRecDepth() ) );
     }
     
     /**
-     * Rating function. Maximizes for the first player. There are many parallels
-     * to {@link LocalConnectFour#checkAndSetFinished()
-     * LocalConnectFour.checkAndSetFinished()}.
-     * @param game Game in which the current situation should be rated.
-     * @return Rating for current game situation.
+     * @return Returns the {@link #nodeBudget node budget} reduced according
+     *     to the {@link #difficulty difficulty}.
      */
-    public int rate( LocalConnectFour game )
+    private long getSearchNodeBudget()
     {
-        int rating = 0;
+        return Math.max( 1, (long) (getDifficulty() * getNodeBudget()) );
+    }
+    
+    /**
+     * @return Returns the {@link #timeBudget time budget} reduced according
+     *     to the {@link #difficulty difficulty}.
+     */
+    private long getSearchTimeBudget()
+    {
+        return Math.max( 1, (long) (getDifficulty() * getTimeBudget()) );
+    }
+    
+    /**
+     * Adds {@link #rootNoise noise} to a rating unless it is a win or loss
+     * rating.
+     * @param rating The rating.
+     * @param noise The noise to add.
+     * @return The rating with the noise.
+     */
+    private int addRootNoise( int rating, int noise )
+    {
+        if( noise == 0 || Math.abs( rating ) >= getWinRating() / 1024 )
+            return rating;
+        return rating + noise;
+    }
+    
+    /**
+     * Converts between moves in {@link #gameCopy gameCopy} and moves in the
+     * canonical position. Both directions are the same, because mirroring
+     * twice gives the original move.
+     * @param move A move or -1.
+     * @param mirrored Whether the canonical position is the mirrored one.
+     * @return The mirrored move if mirrored is set, otherwise the passed move.
+     * @see LocalConnectFour#getCanonicalHash()
+     */
+    private int orient( int move, boolean mirrored )
+    {
+        return (mirrored && move >= 0) ? getGameCopy().mirrorColumn( move )
+                                       : move;
+    }
+    
+    /**
+     * Writes the valid moves in {@link #gameCopy gameCopy} in the order in
+     * which they should be searched according to the enabled {@link
+     * #moveOrdering move ordering heuristics} to an array.
+     * @param moves Array to write the moves to.
+     * @param hashMove Best move stored in the transposition table or -1.
+     * @param root Whether the moves for the root of the search are ordered.
+     *     The passed hash move is always searched first at the root. If the
+     *     root position is symmetric, only the moves in the left half of the
+     *     grid are returned, because the others lead to mirrored positions.
+     *     <p>
+     *     With {@link #threatAnalysis threat analysis} a move winning
+     *     immediately or, if there is none, a move blocking an immediate win
+     *     of the opponent is the only returned move. Moves which allow the
+     *     opponent to win on top of the dropped disc are left out, unless
+     *     there are no other moves.
+     * @return The number of valid moves.
+     */
+    protected int orderMoves( int[] moves, int hashMove, boolean root )
+    {
+        final LocalConnectFour g = getGameCopy();
+        final int[] ranks = moveRanks[ply];
+        final int[] killers = killerMoves[ply];
+        final int[] ownHistory = history[g.getCurrentPlayer().ordinal()];
+        if( !root && !orderHashMove )
+            hashMove = -1;
+        
+        boolean prune = false;
+        if( threatAnalyzer != null )
+        {
+            threatAnalyzer.analyze( g );
+            final int forced = findForcedMove();
+            if( forced >= 0 )
+            {
+                moves[0] = forced;
+                return 1;
+            }
+            prune = true;
+        }
+        
+        int count = 0;
+        for( int k = 0; k < g.getColumns(); k++ )
+        {
+            final int column = orderCenterFirst ? centerOrder[k] : k;
+            if( !g.isValidMove( column )
+                || (root && rootSymmetric && column > g.mirrorColumn( column ))
+                || (prune && threatAnalyzer.isThreat( g.getNextPlayer(),
+                                 g.getHeight( column ) + 1, column )) )
+            {
+                /* Search the pruned moves if nothing else is left. */
+                if( prune && k == g.getColumns() - 1 && count == 0 )
+                {
+                    prune = false;
+                    k = -1;
+                }
+                continue;
+            }
+            
+            int rank;
+            if( column == hashMove )
+                rank = Integer.MAX_VALUE;
+            else if( orderKillerMoves && column == killers[0] )
+                rank = Integer.MAX_VALUE - 1;
+            else if( orderKillerMoves && column == killers[1] )
+                rank = Integer.MAX_VALUE - 2;
+            else if( orderHistory )
+                rank = ownHistory[column * g.getRows() + g.getHeight( column )];
+            else
+                rank = 0;
+            
+            /* Insertion sort, which keeps the order of equally ranked moves. */
+            int j = count++;
+            for( ; j > 0 && ranks[j - 1] < rank; j-- )
+            {
+                moves[j] = moves[j - 1];
+                ranks[j] = ranks[j - 1];
+            }
+            moves[j] = column;
+            ranks[j] = rank;
+        }
+        return count;
+    }
+    
+    /**
+     * Uses the threats found by the {@link #threatAnalyzer threat analyzer}
+     * for {@link #gameCopy gameCopy} to find a move which has to be done.
+     * @return A move winning the game immediately or, if there is none, a
+     *     move blocking an immediate win of the opponent. -1 if there is no
+     *     such move.
+     */
+    private int findForcedMove()
+    {
+        final LocalConnectFour g = getGameCopy();
+        int block = -1;
+        for( int column = 0; column < g.getColumns(); column++ )
+        {
+            final int row = g.getHeight( column );
+            if( row >= g.getRows() )
+                continue;
+            if( threatAnalyzer.isThreat( g.getCurrentPlayer(), row, column ) )
+                return column;
+            if( threatAnalyzer.isThreat( g.getNextPlayer(), row, column ) )
+            {
+                /* With two threats the game is lost anyway. Blocking the
+                 * left one would rate the position different from its mirror
+                 * image, so search all moves.
+                 */
+                if( block >= 0 )
+                    return -1;
+                block = column;
+            }
+        }
+        return block;
+    }
+    
+    /**
+     * Updates the killer moves and the history after a move caused a cut off
+     * in the current {@link #ply ply}.
+     * @param column The move.
+     * @param recdepth Remaining recursion depth.
+     * @param firstMove Whether the move was the first searched move.
+     */
+    private void storeCutoff( int column, int recdepth, boolean firstMove )
+    {
+        cutoffs++;
+        if( firstMove )
+            firstMoveCutoffs++;
+        
+        final int[] killers = killerMoves[ply];
+        if( killers[0] != column )
+        {
+            killers[1] = killers[0];
+            killers[0] = column;
+        }
+        
+        final LocalConnectFour g = getGameCopy();
+        final int[] ownHistory = history[g.getCurrentPlayer().ordinal()];
+        final int field = column * g.getRows() + g.getHeight( column );
+        ownHistory[field] = Math.min( ownHistory[field] + recdepth * recdepth,
+                                      Integer.MAX_VALUE / 2 );
+    }
+    
+    /**
+     * Decides whether a move rated equal to the best move so far replaces it
+     * in {@link #minmax(int, int, int, boolean) minmax}. Because the AI
+     * should not always use the same moves, this happens with a probability
+     * of 0.3.
+     * @return true, if the move replaces the best move.
+     */
+    protected boolean replacesEqualMove()
+    {
+        return random.nextDouble() < 0.3;
+    }
+    
+    /**
+     * Does a move in {@link #gameCopy gameCopy} and updates the state of the
+     * evaluation.
+     * @param column Where to drop the disc.
+     * @return true, if successful; false, if move is not valid.
+     */
+    protected boolean doSearchMove( int column )
+    {
+        final Players player = getGameCopy().getCurrentPlayer();
+        if( !getGameCopy().doMove( column ) )
+            return false;
+        final int row = getGameCopy().getHeight( column ) - 1;
+        if( runEvaluator != null )
+            runEvaluator.update( row, column );
+        if( windowEvaluator != null )
+            windowEvaluator.add( row, column, player );
+        return true;
+    }
+    
+    /**
+     * Undoes the last move in {@link #gameCopy gameCopy} and updates the
+     * state of the evaluation.
+     */
+    protected void undoSearchMove()
+    {
+        final int column = getGameCopy().getMoves().peek();
+        final int row = getGameCopy().getHeight( column ) - 1;
+        if( windowEvaluator != null )
+            windowEvaluator.remove( row, column,
+                                    getGameCopy().getField( row, column ) );
+        getGameCopy().undoLastMove();
+        if( runEvaluator != null )
+            runEvaluator.update( row, column );
+    }
+    
+    /**
+     * Sets the state of the evaluator of the selected {@link #evaluation
+     * evaluation} to {@link #gameCopy gameCopy}. Has to be called whenever
+     * gameCopy has been replaced or changed without {@link
+     * #doSearchMove(int) doSearchMove()} and {@link #undoSearchMove()
+     * undoSearchMove()}.
+     */
+    protected void resetEvaluator()
+    {
+        if( getEvaluation() == Evaluation.RUNS )
+        {
+            if( runEvaluator == null || !runEvaluator.fits( getGameCopy() ) )
+                runEvaluator = new RunEvaluator( this, getGameCopy() );
+            runEvaluator.reset( getGameCopy() );
+        }
+        else
+            runEvaluator = null;
+        
+        if( getEvaluation() == Evaluation.WINDOWS )
+        {
+            if( windowEvaluator == null
+                || !windowEvaluator.fits( getGameCopy() ) )
+                windowEvaluator = new WindowEvaluator(
+                    getGameCopy().getRows(), getGameCopy().getColumns(),
+                    getGameCopy().getWinLength() );
+            windowEvaluator.reset( getGameCopy() );
+        }
+        else
+            windowEvaluator = null;
+    }
+    
+    /**
+     * Rates {@link #gameCopy gameCopy} with the selected {@link #evaluation
+     * evaluation}.
+     * @return Rating for the current game situation. Maximizes for the first
+     *     player.
+     */
+    protected int evaluate()
+    {
+        final LocalConnectFour g = getGameCopy();
+        int rating;
+        if( g.isGameFinished() )
+            rating = rate( g );
+        else if( runEvaluator != null )
+            rating = runEvaluator.getRating();
+        else if( windowEvaluator != null )
+            rating = windowEvaluator.getRating();
+        else
+            rating = rate( g );
+        if( threatAnalyzer != null && !g.isGameFinished() )
+        {
+            threatAnalyzer.analyze( g );
+            rating += threatAnalyzer.getRating( g );
+        }
+        return rating;
+    }
+    
+    /**
+     * Sets the principal variation of the current {@link #ply ply} to the
+     * passed move followed by the principal variation of the next ply.
+     * @param move The best move in the current ply.
+     */
+    private void updatePrincipalVariation( int move )
+    {
+        final int[] pv = pvMoves[ply];
+        final int[] childPv = pvMoves[ply + 1];
+        final int childLength = pvLength[ply + 1];
+        pv[0] = move;
+        System.arraycopy( childPv, 0, pv, 1, childLength );
+        pvLength[ply] = childLength + 1;
+    }
+
+    /**
+     * Notifies the {@link #progressListeners progress listeners} about the
+     * state of the search.
+     * @param finished Whether the search has finished.
+     */
+    private void fireSearchProgress( boolean finished )
+    {
+        SearchProgressEvent e = new SearchProgressEvent( this,
+            completedDepth, getTotalNodes(), getElapsedTime(),
+            getBestRootMove(), bestRootRating, finished );
+        for( SearchProgressListener l : progressListeners )
+            l.searchProgress( e );
+    }
+    
+    /**
+     * Shorthand for {@link #move(CancellationToken) move(new
+     * CancellationToken())}.
+     */
+    public void move()
+    {
+        move( new CancellationToken() );
+    }
+    
+    /**
+     * Tells the AI to make a move. If the token is cancelled, the search
+     * stops as soon as possible and no move is done.
+     * @param token Token to cancel the move.
+     */
+    public void move( CancellationToken token )
+    {
+        stopPondering();
+        if( token.isCancelled() )
+            return;
+        cancellationToken = token;
+        GameSnapshot snapshot;
+        synchronized( getGame() )
+        {
+            snapshot = getGame().getSnapshot();
+        }
+        setGameCopy( snapshot.toGame() );
+        
+        int move[];
+        try
+        {
+            move = search();
+        }
+        finally
+        {
+            cancellationToken = null;
+        }
+        if( token.isCancelled() )
+            return;
+        
+        /* Ensure that we have a move. Nothing would be worse if the minmax
+         * function fails, but there would be a possibility for a move and the
+         * AI does not move. Of course the minmax function should always return
+         * a move (if there is one possible), but it's better to be save.
+         */
+        if( move == null )
+        {
+            ArrayList<Integer> possibleMoves;
+            synchronized( getGame() )
+            {
+                possibleMoves = new ArrayList<Integer>( getGame().getColumns() );
+                for( int i = 0; i < getGame().getColumns(); i++ )
+                {
+                    if( getGame().isValidMove( i ) )
+                        possibleMoves.add( i );
+                }
+            }
+            
+            move = new int[2];
+            move[1] = possibleMoves.get( random.nextInt(
+                possibleMoves.size() ) );
+        }
+        bestRating = move[0];
+        bestRootMove = move[1];
+        bestRootRating = move[0];
+        if( !progressListeners.isEmpty() )
+            fireSearchProgress( true );
+        
+        synchronized( getGame() )
+        {
+            if( token.isCancelled() )
+                return;
+            getGame().doMove( move[1] );
+            if( getPonderBudget() > 0 && !getGame().isGameFinished() )
+                startPondering( getGame().getSnapshot() );
+        }
+    }
+    
+    /**
+     * Searches the best move in {@link #gameCopy gameCopy}. If more than one
+     * {@link #threads thread} is used, the {@link #helpers helpers} search the
+     * same position in parallel until this AI has finished its search.
+     * @return An array with the length two. The first element is the rating
+     *     for the best move found. The second is the column of this move.
+     *     Null if no move could be found.
+     * @see #iterativeDeepening(int)
+     */
+    protected int[] search()
+    {
+        searchSeed = nextSeed;
+        nextSeed += 0x9e3779b97f4a7c15L;
+        random.setSeed( searchSeed );
+        completedDepth = 0;
+        bestRootRating = 0;
+        nextProgress = System.nanoTime() + 1000000 * getProgressInterval();
+        
+        int[] booked = lookUpOpeningBook();
+        if( booked != null )
+            return booked;
+        
+        int[] solved = solveEndgame();
+        if( solved != null )
+            return solved;
+        
+        if( getTranspositionTable() != null )
+            getTranspositionTable().newSearch();
+        stopRequested = false;
+        Thread[] helperThreads = startHelpers();
+        int[] best = iterativeDeepening( 1 );
+        stopHelpers( helperThreads );
+        
+        /* Only one half of the moves has been searched in a symmetric
+         * position. Use the mirrored move in half of the games, so that the
+         * AI does not always play on the same side.
+         */
+        if( best != null && rootSymmetric && random.nextDouble() < 0.5 )
+        {
+            best[1] = getGameCopy().mirrorColumn( best[1] );
+            bestRootMove = best[1];
+            for( int i = 0; i < principalVariation.length; i++ )
+                principalVariation[i] = getGameCopy().mirrorColumn(
+                    principalVariation[i] );
+        }
+        return best;
+    }
+    
+    /**
+     * Looks up {@link #gameCopy gameCopy} in the {@link #openingBook opening
+     * book}. The book is not used with a difficulty below 1.
+     * @return An array with the length two. The first element is the rating
+     *     for the best move, the second is the column of this move. Null if
+     *     the position is not in the book.
+     */
+    protected int[] lookUpOpeningBook()
+    {
+        if( getOpeningBook() == null || getDifficulty() < 1 )
+            return null;
+        
+        final int index = getOpeningBook().find( getGameCopy() );
+        if( index < 0 )
+            return null;
+        final int move = orient( getOpeningBook().getMove( index ),
+                                 getGameCopy().isStartRelativeMirrored() );
+        if( !getGameCopy().isValidMove( move ) )
+            return null;
+        
+        nodes = 0;
+        searchStart = System.nanoTime();
+        bestRootMove = move;
+        principalVariation = new int[] { bestRootMove };
+        int rating[] = new int[2];
+        rating[0] = getOpeningBook().getRating( index );
+        rating[1] = bestRootMove;
+        return rating;
+    }
+    
+    /**
+     * Solves {@link #gameCopy gameCopy} exactly with the {@link
+     * #endgameSolver endgame solver} if it has at most {@link
+     * #endgameThreshold endgameThreshold} remaining moves. The solver is not
+     * used with a difficulty below 1, because perfect play would not fit
+     * the weakened search.
+     * @return An array with the length two. The first element is the rating
+     *     for the best move, which is the win rating for a win, the negative
+     *     win rating for a loss and 0 for a draw. The second element is the
+     *     column of this move. Null if the position has not been solved.
+     */
+    protected int[] solveEndgame()
+    {
+        if( getEndgameThreshold() <= 0 || getDifficulty() < 1
+            || getGameCopy().isGameFinished()
+            || EndgameSolver.getRemainingMoves( getGameCopy() )
+               > getEndgameThreshold() )
+            return null;
+        
+        searchStart = System.nanoTime();
+        if( endgameSolver == null )
+            endgameSolver = new EndgameSolver();
+        endgameSolver.setNodeLimit( (getNodeBudget() > 0) ? getNodeBudget()
+                                    : endgameNodeLimit );
+        endgameSolver.setCancellationToken( cancellationToken );
+        final int score = endgameSolver.solve( getGameCopy() );
+        if( endgameSolver.isAborted() || endgameSolver.getBestMove() < 0 )
+            return null;
+        
+        nodes = endgameSolver.getNodes();
+        bestRootMove = endgameSolver.getBestMove();
+        principalVariation = new int[] { bestRootMove };
+        int rating[] = new int[2];
+        rating[0] = Integer.signum( score ) * getWinRating();
+        rating[1] = bestRootMove;
+        return rating;
+    }
+    
+    /**
+     * Searches the best move in {@link #gameCopy gameCopy} by iterative
+     * deepening: The {@link #minmax(int, int, int, boolean) minmax} search is
+     * run with increasing recursion depths up to {@link #recDepth recDepth}
+     * until the time or node budget runs out. Each iteration searches the
+     * best moves of the previous iteration first. The result of an iteration
+     * which has been aborted is discarded.
+     * @param startDepth Recursion depth of the first iteration.
+     * @return An array with the length two. The first element is the rating
+     *     for the best move found. The second is the column of this move.
+     *     Null if no move could be found.
+     */
+    protected int[] iterativeDeepening( int startDepth )
+    {
+        nodes = 0;
+        tableStatistics.reset();
+        searchAborted = false;
+        searchStart = System.nanoTime();
+        rootSymmetric = getGameCopy().isSymmetric();
+        
+        bestRootMove = -1;
+        for( int i = 0; i < getGameCopy().getColumns() && bestRootMove < 0;
+             i++ )
+        {
+            if( getGameCopy().isValidMove( i ) )
+                bestRootMove = i;
+        }
+        
+        resetEvaluator();
+        
+        if( isThreatAnalysis() )
+        {
+            if( threatAnalyzer == null
+                || !threatAnalyzer.fits( getGameCopy() ) )
+                threatAnalyzer = new ThreatAnalyzer(
+                    getGameCopy().getRows(), getGameCopy().getColumns(),
+                    getGameCopy().getWinLength() );
+        }
+        else
+            threatAnalyzer = null;
+        
+        settingsKey = ZobristKeys.getSettingsKey( getGameCopy().getRows(),
+            getGameCopy().getColumns(), getGameCopy().getWinLength(),
+            getGameCopy().getMaxTurns(), 2 * getEvaluation().ordinal()
+                                         + (isThreatAnalysis() ? 1 : 0) );
+        
+        /* Allocate the buffers for the search. */
+        final int columns = getGameCopy().getColumns();
+        final int fields = getGameCopy().getRows() * columns;
+        if( bestMoves == null || bestMoves.length < getRecDepth() + 2
+            || moveLists[0].length != columns || history[0].length != fields )
+        {
+            bestMoves = new int[getRecDepth() + 2];
+            pvLength = new int[getRecDepth() + 2];
+            pvMoves = new int[getRecDepth() + 2][getRecDepth() + 2];
+            moveLists = new int[getRecDepth() + 2][columns];
+            moveRanks = new int[getRecDepth() + 2][columns];
+            killerMoves = new int[getRecDepth() + 2][2];
+            history = new int[2][fields];
+            centerOrder = new int[columns];
+            for( int i = 0; i < columns; i++ )
+            {
+                /* Center, one right, one left, two right, ... */
+                centerOrder[i] = (columns - 1) / 2
+                                 + ((i % 2 == 0) ? -i / 2 : (i + 1) / 2);
+            }
+        }
+        for( int[] killers : killerMoves )
+            Arrays.fill( killers, -1 );
+        for( int[] ownHistory : history )
+        {
+            for( int i = 0; i < ownHistory.length; i++ )
+                ownHistory[i] /= 2;
+        }
+        orderHashMove = moveOrdering.contains( MoveOrdering.HASH_MOVE );
+        orderKillerMoves = moveOrdering.contains( MoveOrdering.KILLER_MOVES );
+        orderHistory = moveOrdering.contains( MoveOrdering.HISTORY );
+        orderCenterFirst = moveOrdering.contains( MoveOrdering.CENTER_FIRST );
+        cutoffs = firstMoveCutoffs = 0;
+        ply = 0;
+        
+        final int noise = (int) Math.round( (1 - getDifficulty())
+                                            * getMaxRootNoise() );
+        if( noise > 0 )
+        {
+            if( rootNoise == null || rootNoise.length != columns )
+                rootNoise = new int[columns];
+            for( int i = 0; i < columns; i++ )
+                rootNoise[i] = random.nextInt( 2 * noise + 1 ) - noise;
+        }
+        else
+            rootNoise = null;
+        
+        int[] best = null;
+        for( int depth = startDepth; depth <= getSearchDepth(); depth++ )
+        {
+            rootDepth = depth;
+            bestMoves[0] = -1;
+            int rating;
+            
+            /* Search a window around the rating of the previous iteration
+             * first and repeat the search with the full window if the rating
+             * lies outside. Win ratings are not used as window center.
+             */
+            if( getAspirationWindow() > 0 && best != null
+                && Math.abs( best[0] ) + getAspirationWindow()
+                   < getWinRating() / 1024 )
+            {
+                final int alpha = best[0] - getAspirationWindow();
+                final int beta = best[0] + getAspirationWindow();
+                rating = minmax( depth, alpha, beta, false );
+                if( !isSearchAborted()
+                    && (rating < alpha || rating > beta || bestMoves[0] < 0) )
+                {
+                    bestMoves[0] = -1;
+                    rating = minmax( depth, -getWinRating(), getWinRating(),
+                                     false );
+                }
+            }
+            else
+                rating = minmax( depth, -getWinRating(), getWinRating(),
+                                 false );
+            if( isSearchAborted() )
+                break;
+            if( bestMoves[0] >= 0 )
+            {
+                best = new int[] { rating, bestMoves[0] };
+                bestRootMove = bestMoves[0];
+                bestRootRating = rating;
+                completedDepth = depth;
+                principalVariation = Arrays.copyOf( pvMoves[0], pvLength[0] );
+            }
+            
+            /* The next iteration will take longer than all previous ones
+             * together, so do not start it if it cannot finish in time.
+             */
+            if( getTimeBudget() > 0
+                && 2 * getElapsedTime() >= getSearchTimeBudget() )
+                break;
+        }
+        return best;
+    }
+    
+    /**
+     * Starts the {@link #helpers helpers} searching {@link #gameCopy gameCopy}
+     * in additional threads. Helpers with an odd index start with a deeper
+     * iteration to diversify the search.
+     * @return The started threads.
+     */
+    private Thread[] startHelpers()
+    {
+        if( helpers.length != getThreads() - 1 )
+        {
+            helpers = new ConnectFourAi[getThreads() - 1];
+            for( int i = 0; i < helpers.length; i++ )
+                helpers[i] = new ConnectFourAi( getGame(), getRecDepth(),
+                                                getDifficulty(), null );
+        }
         
+        Thread[] helperThreads = new Thread[helpers.length];
+        for( int i = 0; i < helpers.length; i++ )
+        {
+            final ConnectFourAi helper = helpers[i];
+            final int startDepth = 1 + (i + 1) % 2;
+            copySettingsTo( helper );
+            helper.random.setSeed( searchSeed + i + 1 );
+            helper.setGameCopy( getGameCopy().getSnapshot().toGame() );
+            helper.stopRequested = false;
+            helperThreads[i] = new Thread( new Runnable() {
+                @Override
+                public void run()
+                {
+                    helper.iterativeDeepening( startDepth );
+                }
+            }, "ConnectFourAi helper " + (i + 1) );
+            helperThreads[i].setDaemon( true );
+            helperThreads[i].start();
+        }
+        return helperThreads;
+    }
+    
+    /**
+     * Copies the game, the transposition table and the search settings to an
+     * AI searching in another thread for this AI.
+     * @param other The other AI.
+     */
+    private void copySettingsTo( ConnectFourAi other )
+    {
+        other.game = getGame(); // setGame() would age the table.
+        other.setTranspositionTable( getTranspositionTable() );
+        other.setRecDepth( getRecDepth() );
+        other.setDifficulty( getDifficulty() );
+        other.setMaxRootNoise( getMaxRootNoise() );
+        other.setEvaluation( getEvaluation() );
+        other.setMoveOrdering( getMoveOrdering() );
+        other.setAlgorithm( getAlgorithm() );
+        other.setAspirationWindow( getAspirationWindow() );
+        other.setThreatAnalysis( isThreatAnalysis() );
+    }
+    
+    /**
+     * Starts pondering: The position after the move of the AI is searched in
+     * an additional thread while the opponent thinks about the move. Because
+     * the {@link #ponderer ponderer} shares the transposition table with this
+     * AI, the search after the reply of the opponent finds the results for
+     * the subtree of the reply in the table. Pondering ends when the {@link
+     * #ponderBudget ponder budget} runs out or {@link #stopPondering()
+     * stopPondering()} is called.
+     * @param position The position to search.
+     */
+    private synchronized void startPondering( final GameSnapshot position )
+    {
+        stopPondering();
+        if( ponderer == null )
+            ponderer = new ConnectFourAi( getGame(), getRecDepth(),
+                                          getDifficulty(), null );
+        final ConnectFourAi ai = ponderer;
+        copySettingsTo( ai );
+        ai.random.setSeed( ~searchSeed );
+        ai.setTimeBudget( getPonderBudget() );
+        ai.setNodeBudget( 0 );
+        ai.stopRequested = false;
+        ponderPlayer = position.getCurrentPlayer();
+        ponderThread = new Thread( new Runnable() {
+            @Override
+            public void run()
+            {
+                ai.setGameCopy( position.toGame() );
+                ai.iterativeDeepening( 1 );
+            }
+        }, "ConnectFourAi ponderer" );
+        ponderThread.setDaemon( true );
+        ponderThread.setPriority( Thread.MIN_PRIORITY );
+        ponderThread.start();
+    }
+    
+    /**
+     * Stops pondering and waits for the pondering thread to end. Does nothing
+     * if the AI is not pondering.
+     */
+    public synchronized void stopPondering()
+    {
+        if( ponderThread == null )
+            return;
+        ponderer.stopRequested = true;
+        joinThreads( new Thread[] { ponderThread } );
+        ponderNodes += ponderer.getNodes();
+        ponderThread = null;
+    }
+    
+    /**
+     * @return Returns whether the AI is currently pondering.
+     */
+    public synchronized boolean isPondering()
+    {
+        return ponderThread != null && ponderThread.isAlive();
+    }
+    
+    /**
+     * Stops the {@link #helpers helpers} and waits for their threads to end.
+     * @param helperThreads Threads returned by {@link #startHelpers()
+     *     startHelpers()}.
+     */
+    private void stopHelpers( Thread[] helperThreads )
+    {
+        for( ConnectFourAi helper : helpers )
+            helper.stopRequested = true;
+        joinThreads( helperThreads );
+        for( ConnectFourAi helper : helpers )
+            tableStatistics.add( helper.tableStatistics );
+    }
+    
+    /**
+     * Waits for threads to end. An interrupt while waiting is restored after
+     * all threads have ended.
+     * @param threads The threads.
+     */
+    private static void joinThreads( Thread[] threads )
+    {
+        for( Thread thread : threads )
+        {
+            boolean interrupted = false;
+            while( thread.isAlive() )
+            {
+                try
+                {
+                    thread.join();
+                }
+                catch( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+            if( interrupted )
+                Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Rates a sequence of disks in a Row.
+     * @param freeBefore Number of free fields before the sequence.
+     * @param inRow Number of discs in a row. The sign determines the player.
+     * @param freeAfter Number of free fields after the sequence.
+     * @return Rating for the row sequence.
+     */
+    public int  rateRowSequence( int freeBefore, int inRow, int freeAfter )
+    {
+        if( freeBefore + Math.abs( inRow ) + freeAfter < game.getWinLength() )
+            return 0;
+        if( inRow > game.getWinLength() )
+            inRow = game.getWinLength();
+        else if( inRow < game.getWinLength() )
+            inRow = -game.getWinLength();
+        int rating = inRow * inRow;
+        if( freeBefore > 0 && freeAfter > 0 )
+            rating *= 3;
+        if( inRow < 0 )
+            rating *= -1;
+        return rating;
+    }
+    
+    /**
+     * Rating function. Maximizes for the first player. There are many parallels
+     * to {@link LocalConnectFour#checkAndSetFinished()
+     * LocalConnectFour.checkAndSetFinished()}. The rating is the sum of the
+     * ratings of all rows, columns and diagonals, so that it can be updated
+     * incrementally by rating only the lines through a changed field.
+     * @param game Game in which the current situation should be rated.
+     * @return Rating for current game situation.
+     * @see RunEvaluator
+     */
+    public int rate( LocalConnectFour game )
+    {
         if( game.isGameFinished() )
         {
             if( game.getWinner() == Players.FIRST )
@@ -305,137 +1661,125 @@ public class ConnectFourAi implements Runnable
             return 0;
         }
         
-        final int possibleDiags = game.getColumns() + game.getRows()
-                                  - 2 * (game.getWinLength()-1);
-
-        /* For rating we have also to count the free fields and not only the 
-         * number of discs in a row. Otherwise it could not be determined if
-         * there is enough space to complete a row.
-         */
+        int rating = 0;
+        for( int i = 0; i < game.getRows(); i++ )
+            rating += rateRow( game, i );
+        for( int j = 0; j < game.getColumns(); j++ )
+            rating += rateColumn( game, j );
+        for( int i = 0; i < getDiagonalCount( game ); i++ )
+        {
+            rating += rateDiagonal( game, i, true );
+            rating += rateDiagonal( game, i, false );
+        }
+        return rating;
+    }
+    
+    /**
+     * Rates the runs of discs in a row. For rating we have also to count the
+     * free fields and not only the number of discs in a row. Otherwise it
+     * could not be determined if there is enough space to complete a row.
+     * @param game Game to rate.
+     * @param row The row.
+     * @return The part of the {@link #rate(LocalConnectFour) rating} which
+     *     belongs to the row.
+     */
+    int rateRow( LocalConnectFour game, int row )
+    {
+        int rating = 0;
         int freeBeforeInRow = 0;
         int inRow = 0;
         int freeAfterInRow = 0;
-        int[] inColumns = new int[game.getColumns()];
-        int[] freeInColumns = new int[game.getColumns()];
-        /* Down/Up as viewed from left to right: */
-        int[] inDiagsDown = new int[possibleDiags];
-        int[] inDiagsUp   = new int[possibleDiags];
-        int[] freeInDiagsDown = new int[possibleDiags];
-        int[] freeInDiagsUp   = new int[possibleDiags];
-        Arrays.fill( inColumns, 0 );
-        Arrays.fill( freeInColumns, 0 );
-        Arrays.fill( inDiagsDown, 0 );
-        Arrays.fill( inDiagsUp, 0 );
-        Arrays.fill( freeInDiagsDown, 0 );
-        Arrays.fill( freeInDiagsUp, 0 );
-        
-
-        for( int i = 0; i < game.getRows(); i++ ) // Rows
+        for( int j = 0; j < game.getColumns(); j++ )
         {
-            freeBeforeInRow = inRow = freeAfterInRow = 0;
-            for( int j = 0; j < game.getColumns(); j++ ) // Columns
+            final int occupiedBy = getOccupation( game, row, j );
+            if( occupiedBy != 0 )
             {
-                final int idxDiagDown = j+i - (game.getWinLength()-1);
-                final int idxDiagUp   = j+(game.getRows()-1-i)
-                                        - (game.getWinLength()-1); 
-                
-                int occupiedBy; // Representing the player occupying the current
-                    // field. Players.FIRST is 1, Players.SECOND is -1, and
-                    // in all other cases (Players.UNDEFINED).
-                switch( game.getField( i, j ) )
-                {
-                    case FIRST:  occupiedBy =  1; break;
-                    case SECOND: occupiedBy = -1; break;
-                    default:
-                        occupiedBy =  0;
-                        freeInColumns[j]++;
-                        if( 0 <= idxDiagDown && idxDiagDown < possibleDiags )
-                            freeInDiagsDown[idxDiagDown]++;
-                        if( 0 <= idxDiagUp && idxDiagUp < possibleDiags )
-                            freeInDiagsUp[idxDiagUp]++;
-                        break;
-                }
-
-                /* Count in row */
-                if( occupiedBy != 0 )
+                if( freeAfterInRow > 0 )
                 {
-                    if( freeAfterInRow > 0 )
-                    {
-                        rating += rateRowSequence( freeBeforeInRow, inRow,
-                                                   freeAfterInRow );
-                        freeBeforeInRow = freeAfterInRow;
-                        inRow = freeAfterInRow = 0;    
-                    }
-                    else if( inRow != 0 && (inRow < 0) == (occupiedBy > 0) )
-                    {
-                        rating += rateRowSequence( freeBeforeInRow, inRow,
-                                                   freeAfterInRow );
-                        freeBeforeInRow = 0;
-                        inRow = freeAfterInRow = 0;
-                    }
-                    
-                    inRow = countInRow( game, inRow, occupiedBy );
+                    rating += rateRowSequence( freeBeforeInRow, inRow,
+                                               freeAfterInRow );
+                    freeBeforeInRow = freeAfterInRow;
+                    inRow = freeAfterInRow = 0;    
                 }
-                else
+                else if( inRow != 0 && (inRow < 0) == (occupiedBy > 0) )
                 {
-                    if( inRow == 0)
-                        freeBeforeInRow++;
-                    else
-                        freeAfterInRow++;
+                    rating += rateRowSequence( freeBeforeInRow, inRow,
+                                               freeAfterInRow );
+                    freeBeforeInRow = 0;
+                    inRow = freeAfterInRow = 0;
                 }
                 
-                /* Count in column and diagonals */
-                inColumns[j] = countInRow( game, inColumns[j], occupiedBy );
-                if( Math.abs( inColumns[j] ) + freeInColumns[j] + game.getRows()
-                    - i < game.getWinLength() )
-                    inColumns[j] = 0;
-                if( 0 <= idxDiagDown && idxDiagDown < possibleDiags )
-                {
-                    inDiagsDown[idxDiagDown] = countInCols(
-                        game, inDiagsDown[idxDiagDown], occupiedBy );
-                    if( Math.abs( inDiagsDown[idxDiagDown] )
-                        + freeInDiagsDown[idxDiagDown] + game.getRows() - i
-                        < game.getWinLength() )
-                        inDiagsDown[idxDiagDown] = 0;
-                }
-                if( 0 <= idxDiagUp && idxDiagUp < possibleDiags )
-                {
-                    inDiagsUp[idxDiagUp] = countInCols(
-                        game, inDiagsUp[idxDiagUp], occupiedBy );
-                    if( Math.abs( inDiagsUp[idxDiagUp] )
-                        + freeInDiagsUp[idxDiagUp] + game.getRows() - i
-                        < game.getWinLength() )
-                        inDiagsUp[idxDiagUp] = 0;
-                }
-            }
-            
-            if( freeBeforeInRow < game.getColumns() )
-                rating += rateRowSequence( freeBeforeInRow, inRow,
-                                           freeAfterInRow );
-        }
-        
-        /* Evaluate columns and diagonals. */
-        for( int mode = 0; mode < 3; mode++ )
-        {
-            int[] array = null;
-            switch( mode )
-            {
-                case 0: array = inColumns;   break;
-                case 1: array = inDiagsDown; break;
-                case 2: array = inDiagsUp;   break;
+                inRow = countInRow( game, inRow, occupiedBy );
             }
-
-            for( int i = 0; i < array.length; i++ )
+            else
             {
-                if( array[i] >= 0 )
-                    rating += array[i] * array[i];
+                if( inRow == 0)
+                    freeBeforeInRow++;
                 else
-                    rating -= array[i] * array[i];
+                    freeAfterInRow++;
             }
         }
         
+        if( freeBeforeInRow < game.getColumns() )
+            rating += rateRowSequence( freeBeforeInRow, inRow,
+                                       freeAfterInRow );
         return rating;
     }
+    
+    /**
+     * Rates the discs in a row at the end of a column.
+     * @param game Game to rate.
+     * @param column The column.
+     * @return The part of the {@link #rate(LocalConnectFour) rating} which
+     *     belongs to the column.
+     */
+    int rateColumn( LocalConnectFour game, int column )
+    {
+        int inColumn = 0;
+        int freeInColumn = 0;
+        for( int i = 0; i < game.getRows(); i++ )
+        {
+            final int occupiedBy = getOccupation( game, i, column );
+            if( occupiedBy == 0 )
+                freeInColumn++;
+            inColumn = countInRow( game, inColumn, occupiedBy );
+            if( Math.abs( inColumn ) + freeInColumn + game.getRows() - i
+                < game.getWinLength() )
+                inColumn = 0;
+        }
+        return (inColumn >= 0) ? inColumn * inColumn : -inColumn * inColumn;
+    }
+    
+    /**
+     * Rates the discs in a row at the end of a diagonal.
+     * @param game Game to rate.
+     * @param index Index of the diagonal between 0 and {@link
+     *     #getDiagonalCount(LocalConnectFour) getDiagonalCount()}.
+     * @param down Whether the diagonal goes down as viewed from left to
+     *     right.
+     * @return The part of the {@link #rate(LocalConnectFour) rating} which
+     *     belongs to the diagonal.
+     */
+    int rateDiagonal( LocalConnectFour game, int index, boolean down )
+    {
+        int inDiag = 0;
+        int freeInDiag = 0;
+        for( int i = 0; i < game.getRows(); i++ )
+        {
+            final int j = index + game.getWinLength() - 1
+                          - (down ? i : game.getRows() - 1 - i);
+            if( j < 0 || j >= game.getColumns() )
+                continue;
+            final int occupiedBy = getOccupation( game, i, j );
+            if( occupiedBy == 0 )
+                freeInDiag++;
+            inDiag = countInCols( game, inDiag, occupiedBy );
+            if( Math.abs( inDiag ) + freeInDiag + game.getRows() - i
+                < game.getWinLength() )
+                inDiag = 0;
+        }
+        return (inDiag >= 0) ? inDiag * inDiag : -inDiag * inDiag;
+    }
 
     @Override
     public void run()
@@ -456,9 +1800,78 @@ public class ConnectFourAi implements Runnable
         return difficulty;
     }
     
+    public void setMaxRootNoise( int maxRootNoise )
+    {
+        this.maxRootNoise = maxRootNoise;
+    }
+    
+    public int getMaxRootNoise()
+    {
+        return maxRootNoise;
+    }
+    
+    public void setAlgorithm( Algorithm algorithm )
+    {
+        this.algorithm = algorithm;
+    }
+
+    public Algorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    /**
+     * @param aspirationWindow Half width of the window searched around the
+     *     rating of the previous iteration or 0 to always search the full
+     *     window.
+     */
+    public void setAspirationWindow( int aspirationWindow )
+    {
+        this.aspirationWindow = Math.max( 0, aspirationWindow );
+    }
+
+    public int getAspirationWindow()
+    {
+        return aspirationWindow;
+    }
+
+    /** @return Returns the number of cut offs in the last search. */
+    public long getCutoffs()
+    {
+        return cutoffs;
+    }
+
+    /**
+     * @return Returns the number of cut offs in the last search caused by the
+     *     first searched move of a node. The ratio of this to {@link
+     *     #getCutoffs() getCutoffs()} measures the quality of the move
+     *     ordering.
+     */
+    public long getFirstMoveCutoffs()
+    {
+        return firstMoveCutoffs;
+    }
+
+    public void setEvaluation( Evaluation evaluation )
+    {
+        this.evaluation = evaluation;
+    }
+
+    public Evaluation getEvaluation()
+    {
+        return evaluation;
+    }
+    
+    /**
+     * Sets the game in which the AI is a player. The entries of the
+     * transposition table are kept, because the table may be shared, but
+     * will be replaced preferentially.
+     */
     public void setGame( LocalConnectFour game )
     {
         this.game = game;
+        if( getTranspositionTable() != null )
+            getTranspositionTable().newSearch();
     } 
 
     public LocalConnectFour getGame()
@@ -476,6 +1889,113 @@ public class ConnectFourAi implements Runnable
         return gameCopy;
     }
 
+    /**
+     * @return Returns the best move found so far by the running search or by
+     *     the last search. This is always a valid move for the searched
+     *     position unless the game has ended.
+     */
+    public int getBestRootMove()
+    {
+        return bestRootMove;
+    }
+
+    /** @return Returns the time in milliseconds since the search started. */
+    public long getElapsedTime()
+    {
+        return (System.nanoTime() - searchStart) / 1000000;
+    }
+
+    public void setNodeBudget( long nodeBudget )
+    {
+        this.nodeBudget = nodeBudget;
+    }
+
+    public long getNodeBudget()
+    {
+        return nodeBudget;
+    }
+
+    /**
+     * @param moveOrdering Heuristics to use for ordering the moves. The best
+     *     move of the previous iteration is always searched first at the root
+     *     of the search.
+     */
+    public void setMoveOrdering( EnumSet<MoveOrdering> moveOrdering )
+    {
+        this.moveOrdering = EnumSet.copyOf( moveOrdering );
+    }
+
+    public EnumSet<MoveOrdering> getMoveOrdering()
+    {
+        return EnumSet.copyOf( moveOrdering );
+    }
+
+    /**
+     * @return Returns the principal variation of the deepest completed
+     *     iteration of the last search starting with the best move.
+     */
+    public int[] getPrincipalVariation()
+    {
+        return principalVariation.clone();
+    }
+
+    /** @return Returns the number of nodes visited by the last search. */
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * @return Returns the number of nodes visited by the last search in all
+     *     threads.
+     */
+    public long getTotalNodes()
+    {
+        long total = getNodes();
+        for( ConnectFourAi helper : helpers )
+            total += helper.getNodes();
+        return total;
+    }
+
+    /** @return Returns the recursion depth of the current iteration. */
+    protected int getRootDepth()
+    {
+        return rootDepth;
+    }
+
+    protected boolean isSearchAborted()
+    {
+        return searchAborted;
+    }
+
+    /**
+     * @param timeBudget Maximum time in milliseconds a search may take or 0
+     *     to do not limit the time.
+     */
+    public void setTimeBudget( long timeBudget )
+    {
+        this.timeBudget = timeBudget;
+    }
+
+    public long getTimeBudget()
+    {
+        return timeBudget;
+    }
+
+    /**
+     * @param threads Number of threads to use for the search. Has to be at
+     *     least 1.
+     */
+    public void setThreads( int threads )
+    {
+        this.threads = Math.max( 1, threads );
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
     public void setRecDepth( int recDepth )
     {
         this.recDepth = recDepth;
@@ -486,6 +2006,171 @@ public class ConnectFourAi implements Runnable
         return recDepth;
     }
 
+    /**
+     * @param endgameThreshold Positions with at most this number of remaining
+     *     moves are solved exactly. Set to 0 to disable the endgame solver.
+     */
+    public void setEndgameThreshold( int endgameThreshold )
+    {
+        this.endgameThreshold = endgameThreshold;
+    }
+    
+    public int getEndgameThreshold()
+    {
+        return endgameThreshold;
+    }
+    
+    /**
+     * @param listener Listener to notify about the progress of the searches.
+     */
+    public void addSearchProgressListener( SearchProgressListener listener )
+    {
+        progressListeners.add( listener );
+    }
+    
+    public void removeSearchProgressListener(
+        SearchProgressListener listener )
+    {
+        progressListeners.remove( listener );
+    }
+    
+    /**
+     * @param progressInterval Interval in milliseconds between two progress
+     *     events.
+     */
+    public void setProgressInterval( long progressInterval )
+    {
+        this.progressInterval = progressInterval;
+    }
+    
+    public long getProgressInterval()
+    {
+        return progressInterval;
+    }
+    
+    /**
+     * @param ponderBudget Maximum time in milliseconds to search the position
+     *     after a move of the AI while the opponent thinks. It is measured as
+     *     elapsed (wall-clock) time, not as CPU time of the pondering thread,
+     *     which runs with the minimum priority. Set to 0 to do not ponder.
+     *     Pondering needs the {@link #getPonderListener() ponder listener} to
+     *     be added to the game.
+     */
+    public void setPonderBudget( long ponderBudget )
+    {
+        this.ponderBudget = ponderBudget;
+    }
+    
+    public long getPonderBudget()
+    {
+        return ponderBudget;
+    }
+    
+    /**
+     * @return Returns the listener which has to be added to the game to stop
+     *     pondering as soon as the opponent moves.
+     */
+    public MoveDoneListener getPonderListener()
+    {
+        return ponderListener;
+    }
+    
+    /**
+     * @return Returns the total number of nodes searched while pondering.
+     *     The nodes of the running pondering search are not included.
+     */
+    public synchronized long getPonderNodes()
+    {
+        return ponderNodes;
+    }
+    
+    /**
+     * @return Returns the best reply of the opponent found while pondering
+     *     or -1.
+     */
+    public synchronized int getPredictedMove()
+    {
+        return (ponderer != null) ? ponderer.getBestRootMove() : -1;
+    }
+    
+    /**
+     * @param threatAnalysis Whether threats are used to find forced moves, to
+     *     prune moves and to rate positions.
+     */
+    public void setThreatAnalysis( boolean threatAnalysis )
+    {
+        this.threatAnalysis = threatAnalysis;
+    }
+    
+    public boolean isThreatAnalysis()
+    {
+        return threatAnalysis;
+    }
+    
+    public void setOpeningBook( OpeningBook openingBook )
+    {
+        this.openingBook = openingBook;
+    }
+    
+    public OpeningBook getOpeningBook()
+    {
+        return openingBook;
+    }
+    
+    /**
+     * @return Returns the rating of the move done by the last call of {@link
+     *     #move() move()} from the view of the AI.
+     */
+    public int getBestRating()
+    {
+        return bestRating;
+    }
+    
+    /**
+     * Sets the seed of the random number generator for the next search. The
+     * seeds of the following searches are derived from it. A single threaded
+     * search without time budget is repeated exactly by passing the {@link
+     * #getSearchSeed() seed of the search} and starting with the same
+     * position and transposition table content.
+     * @param seed The seed.
+     */
+    public void setSeed( long seed )
+    {
+        nextSeed = seed;
+    }
+    
+    /**
+     * @return Returns the seed of the random number generator used by the
+     *     last search.
+     */
+    public long getSearchSeed()
+    {
+        return searchSeed;
+    }
+    
+    /**
+     * @param transpositionTable Cache for search results. May be null to
+     *     disable caching.
+     */
+    public void setTranspositionTable( TranspositionTable transpositionTable )
+    {
+        this.transpositionTable = transpositionTable;
+    }
+
+    public TranspositionTable getTranspositionTable()
+    {
+        return transpositionTable;
+    }
+    
+    /**
+     * @return Returns the lookups and stores of the transposition table
+     *     during the last search, including those of the helpers.
+     */
+    public TranspositionTable.Statistics getTableStatistics()
+    {
+        return tableStatistics;
+    }
+
     protected static int getWinRating()
     {
         return winRating;
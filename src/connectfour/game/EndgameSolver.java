@@ -0,0 +1,422 @@
+/* ConnectFour
+ * File: EndgameSolver.java
+ * Creation: 19.10.2026 09:31:12
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import connectfour.game.IConnectFour.Players;
+
+/**
+ * Solves Connect Four positions exactly by searching all lines of play up to
+ * the end of the game. This is only feasible for positions with few empty
+ * fields left, e.g. in the endgame or on small grids.
+ * <p>
+ * The score of a position is given from the view of the player who has to
+ * move: 0 is a draw, a positive score is a win and a negative score a loss.
+ * The absolute value of a win or loss score is the number of moves which are
+ * still possible in the game when the winning disc is dropped, so faster wins
+ * and slower losses are preferred. Because this only depends on the position
+ * and not on the way it was reached, the scores can be stored in a
+ * {@link TranspositionTable transposition table}. Mirrored positions share
+ * their entries in the table. The hashes are combined with a key of the game
+ * settings, so that solvers for different games can share one table.
+ */
+public class EndgameSolver
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Enumerations
+    ////////////////////////////////////////////////////////////////////////////
+    /** Outcome of a game with perfect play. */
+    public enum Result
+    {
+        WIN,
+        DRAW,
+        LOSS
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Table shared by all solvers created with the default constructor. */
+    private static TranspositionTable sharedTable;
+    
+    /** Cache for already solved positions. */
+    private final TranspositionTable transpositionTable;
+    
+    /** Game which is solved. The solver works on a copy of the game. */
+    private LocalConnectFour game;
+    
+    /** Game settings of the last solved game. */
+    private int rows = -1, columns = -1, winLength = -1, maxTurns = -1;
+    
+    /** Key of the game settings which is combined with the hashes. */
+    private long settingsKey;
+    
+    /** Columns ordered from the center to the borders. */
+    private int[] centerOrder;
+    
+    /**
+     * Maximum number of nodes to visit in one call of {@link
+     * #solve(LocalConnectFour) solve()}. Set to 0 to do not limit the number
+     * of nodes.
+     */
+    private long nodeLimit = 0;
+    
+    /** Token to cancel the search or null. */
+    private CancellationToken cancellationToken;
+    
+    /** Number of nodes visited by the last call of solve(). */
+    private long nodes;
+    
+    /** Set if the last call of solve() exceeded the node limit. */
+    private boolean aborted;
+    
+    /** Best move found by the last call of solve(). */
+    private int bestMove = -1;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Creates a solver using the {@link #getSharedTranspositionTable() shared
+     * transposition table}.
+     */
+    public EndgameSolver()
+    {
+        this( getSharedTranspositionTable() );
+    }
+    
+    /**
+     * Creates a solver with its own transposition table.
+     * @param memoryBudget Memory budget in bytes for the transposition table.
+     */
+    public EndgameSolver( long memoryBudget )
+    {
+        this( new TranspositionTable( memoryBudget ) );
+    }
+    
+    /**
+     * @param transpositionTable Transposition table to use. It may be shared
+     *     with other solvers, also running in other threads.
+     */
+    public EndgameSolver( TranspositionTable transpositionTable )
+    {
+        this.transpositionTable = transpositionTable;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns the transposition table shared by all solvers created
+     *     with the default constructor. It is created with the {@link
+     *     TranspositionTable#getStdMemoryBudget() standard memory budget} on
+     *     first use.
+     */
+    public static synchronized TranspositionTable getSharedTranspositionTable()
+    {
+        if( sharedTable == null )
+            sharedTable = new TranspositionTable();
+        return sharedTable;
+    }
+    
+    /**
+     * @param game A game.
+     * @return Returns the number of moves which can still be done in the game
+     *     if nobody wins, considering empty fields and the maximum number of
+     *     turns.
+     */
+    public static int getRemainingMoves( LocalConnectFour game )
+    {
+        final int done = game.getMoves().size();
+        int remaining = game.getRows() * game.getColumns() - done;
+        if( game.getMaxTurns() > -1 )
+            remaining = Math.min( remaining, game.getMaxTurns() - done );
+        return Math.max( remaining, 0 );
+    }
+    
+    /**
+     * @param score Score returned by {@link #solve(LocalConnectFour) solve()}.
+     * @return Returns the outcome for the player to move.
+     */
+    public static Result getResult( int score )
+    {
+        if( score > 0 )
+            return Result.WIN;
+        if( score < 0 )
+            return Result.LOSS;
+        return Result.DRAW;
+    }
+    
+    /**
+     * @param game The solved game.
+     * @param score Score returned by {@link #solve(LocalConnectFour) solve()}.
+     * @return Returns the number of moves until the game ends with perfect
+     *     play of both players.
+     */
+    public static int getDistanceToEnd( LocalConnectFour game, int score )
+    {
+        final int remaining = getRemainingMoves( game );
+        if( score == 0 )
+            return remaining;
+        return remaining - Math.abs( score ) + 1;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Solves a position. The passed game is not changed.
+     * @param game Game with the position to solve. The game must not be
+     *     finished.
+     * @return The exact score of the position for the player to move. If the
+     *     node limit has been exceeded, the search is {@link #isAborted()
+     *     aborted} and the return value is meaningless.
+     */
+    public int solve( LocalConnectFour game )
+    {
+        if( game.getRows() != rows || game.getColumns() != columns
+            || game.getWinLength() != winLength
+            || game.getMaxTurns() != maxTurns )
+        {
+            rows = game.getRows();
+            columns = game.getColumns();
+            winLength = game.getWinLength();
+            maxTurns = game.getMaxTurns();
+            settingsKey = ZobristKeys.getSettingsKey( rows, columns, winLength,
+                                                      maxTurns );
+            centerOrder = new int[columns];
+            for( int i = 0; i < columns; i++ )
+                centerOrder[i] = (columns - 1) / 2
+                                 + ((i % 2 == 0) ? -i / 2 : (i + 1) / 2);
+        }
+        
+        this.game = game.getSnapshot().toGame();
+        nodes = 0;
+        aborted = false;
+        bestMove = -1;
+        transpositionTable.newSearch();
+        
+        final int remaining = getRemainingMoves( this.game );
+        return negamax( -remaining, remaining, true );
+    }
+    
+    /**
+     * Negamax search with alpha/beta cut offs up to the end of the game.
+     * @param alpha Lower bound of the interesting scores.
+     * @param beta Upper bound of the interesting scores.
+     * @param root Whether this is the root of the search. The best move is
+     *     only recorded at the root.
+     * @return Score of the position (or a bound if it lies outside of
+     *     (alpha, beta)).
+     */
+    private int negamax( int alpha, int beta, boolean root )
+    {
+        nodes++;
+        if( (nodeLimit > 0 && nodes > nodeLimit)
+            || ((nodes & 1023) == 0 && cancellationToken != null
+                && cancellationToken.isCancelled()) )
+        {
+            aborted = true;
+            return 0;
+        }
+        
+        final LocalConnectFour g = game;
+        final int remaining = getRemainingMoves( g );
+        
+        /* Win with the next move if possible. */
+        final Players player = g.getCurrentPlayer();
+        for( int i = 0; i < columns; i++ )
+        {
+            final int column = centerOrder[i];
+            if( !g.doMove( column ) )
+                continue;
+            final boolean won = g.getWinner() == player;
+            g.undoLastMove();
+            if( won )
+            {
+                if( root )
+                    bestMove = column;
+                return remaining;
+            }
+        }
+        
+        /* Without an immediate win, the best possible outcome is to win with
+         * the move after next.
+         */
+        if( remaining <= 1 )
+        {
+            /* The only remaining move ends the game with a draw. */
+            if( root )
+            {
+                for( int i = 0; i < columns && bestMove < 0; i++ )
+                {
+                    if( g.isValidMove( centerOrder[i] ) )
+                        bestMove = centerOrder[i];
+                }
+            }
+            return 0;
+        }
+        if( beta > remaining - 2 )
+        {
+            beta = remaining - 2;
+            if( alpha >= beta && !root )
+                return beta;
+        }
+        
+        final long hash = g.getCanonicalHash() ^ settingsKey;
+        final boolean mirrored = g.isCanonicalMirrored();
+        final TranspositionTable tt = transpositionTable;
+        int hashMove = -1;
+        final long entry = tt.probe( hash );
+        if( entry != 0 )
+        {
+            final int score = TranspositionTable.getScore( entry );
+            hashMove = TranspositionTable.getMove( entry );
+            if( mirrored && hashMove >= 0 )
+                hashMove = g.mirrorColumn( hashMove );
+            switch( TranspositionTable.getBound( entry ) )
+            {
+                case EXACT:
+                    if( !root || hashMove >= 0 )
+                    {
+                        if( root )
+                            bestMove = hashMove;
+                        return score;
+                    }
+                    break;
+                case LOWER:
+                    if( score > alpha )
+                        alpha = score;
+                    break;
+                case UPPER:
+                    if( score < beta )
+                        beta = score;
+                    break;
+            }
+            if( alpha >= beta && !root )
+                return alpha;
+        }
+        
+        final int alphaOrig = alpha;
+        int best = -remaining, bestColumn = -1;
+        for( int k = -1; k < columns; k++ )
+        {
+            final int column = (k < 0) ? hashMove : centerOrder[k];
+            if( k >= 0 && column == hashMove )
+                continue;
+            if( !g.doMove( column ) )
+                continue;
+            final int score = g.isGameFinished() ? 0
+                              : -negamax( -beta, -alpha, false );
+            g.undoLastMove();
+            if( aborted )
+                return 0;
+            
+            if( score > best || bestColumn < 0 )
+            {
+                best = score;
+                bestColumn = column;
+            }
+            if( score > alpha )
+                alpha = score;
+            if( alpha >= beta )
+                break;
+        }
+        
+        if( root )
+            bestMove = bestColumn;
+        TranspositionTable.Bound bound;
+        if( best <= alphaOrig )
+            bound = TranspositionTable.Bound.UPPER;
+        else if( best >= beta )
+            bound = TranspositionTable.Bound.LOWER;
+        else
+            bound = TranspositionTable.Bound.EXACT;
+        tt.store( hash, remaining, bound, best,
+                  (mirrored && bestColumn >= 0)
+                  ? g.mirrorColumn( bestColumn ) : bestColumn );
+        return best;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Simple Getters & Setters
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns the best move found by the last call of {@link
+     *     #solve(LocalConnectFour) solve()}.
+     */
+    public int getBestMove()
+    {
+        return bestMove;
+    }
+    
+    /**
+     * @return Returns whether the last call of {@link #solve(LocalConnectFour)
+     *     solve()} exceeded the node limit or has been cancelled.
+     */
+    public boolean isAborted()
+    {
+        return aborted;
+    }
+    
+    /**
+     * @param nodeLimit Maximum number of nodes to visit in one call of
+     *     {@link #solve(LocalConnectFour) solve()} or 0 to do not limit the
+     *     number of nodes.
+     */
+    public void setNodeLimit( long nodeLimit )
+    {
+        this.nodeLimit = nodeLimit;
+    }
+    
+    public long getNodeLimit()
+    {
+        return nodeLimit;
+    }
+    
+    /**
+     * @param cancellationToken Token to cancel the search or null.
+     */
+    public void setCancellationToken( CancellationToken cancellationToken )
+    {
+        this.cancellationToken = cancellationToken;
+    }
+    
+    public CancellationToken getCancellationToken()
+    {
+        return cancellationToken;
+    }
+    
+    /**
+     * @return Returns the number of nodes visited by the last call of {@link
+     *     #solve(LocalConnectFour) solve()}.
+     */
+    public long getNodes()
+    {
+        return nodes;
+    }
+    
+    public TranspositionTable getTranspositionTable()
+    {
+        return transpositionTable;
+    }
+}
@@ -0,0 +1,213 @@
+/* ConnectFour
+ * File: GameSnapshot.java
+ * Creation: 21.10.2026 13:21:40
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import connectfour.game.IConnectFour.Players;
+
+/**
+ * Immutable copy of the state of a {@link LocalConnectFour game}. Taking a
+ * snapshot only copies the bitboards and the column heights, the move log is
+ * shared with the game until one of them changes it. Snapshots can therefore
+ * be taken while holding the lock of a shared game without blocking other
+ * threads for long, and be read or turned into a {@link #toGame() mutable
+ * game} afterwards without holding the lock.
+ * @see LocalConnectFour#getSnapshot()
+ */
+public final class GameSnapshot
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Size of the grid. */
+    private final int rows, columns;
+    
+    /** Discs needed in a row to win. */
+    private final int winLength;
+    
+    /** Maximum number of turns or -1. */
+    private final int maxTurns;
+    
+    /** Player who has to move. */
+    private final Players currentPlayer;
+    
+    /** Whether the game has ended. */
+    private final boolean gameFinished;
+    
+    /** Winner if the game has ended. */
+    private final Players winner;
+    
+    /** Start and end of the winning row. */
+    private final int winStartRow, winStartColumn, winEndRow, winEndColumn;
+    
+    /**
+     * Bitboards of the game. Laid out as {@link LocalConnectFour#discs
+     * LocalConnectFour.discs}. Must not be modified.
+     */
+    final long[][] discs;
+    
+    /** Number of discs in each column. Must not be modified. */
+    final int[] heights;
+    
+    /** Hashes of the position and of the mirrored position. */
+    final long hash, mirroredHash;
+    
+    /** Moves of the game. */
+    final MoveLog moves;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param game The game of which the snapshot is taken.
+     */
+    GameSnapshot( LocalConnectFour game )
+    {
+        rows = game.getRows();
+        columns = game.getColumns();
+        winLength = game.getWinLength();
+        maxTurns = game.getMaxTurns();
+        currentPlayer = game.getCurrentPlayer();
+        gameFinished = game.isGameFinished();
+        winner = game.getWinner();
+        winStartRow = game.getWinStartRow();
+        winStartColumn = game.getWinStartColumn();
+        winEndRow = game.getWinEndRow();
+        winEndColumn = game.getWinEndColumn();
+        discs = new long[][] { game.discs[0].clone(), game.discs[1].clone() };
+        heights = game.heights.clone();
+        hash = game.getHash();
+        mirroredHash = game.getMirroredHash();
+        moves = new MoveLog( game.getMoves() );
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns a new game in the state of the snapshot, including the
+     *     maximum number of turns. The move log is shared with the snapshot
+     *     until the game changes it.
+     */
+    public LocalConnectFour toGame()
+    {
+        return new LocalConnectFour( this );
+    }
+    
+    /**
+     * @param row The row in which the field lies.
+     * @param column The column in which the field lies.
+     * @return Returns the player owning the field or {@link Players
+     *     Players.UNDEFINED} if it is empty.
+     */
+    public Players getField( int row, int column )
+        throws IndexOutOfBoundsException
+    {
+        if( row < 0 || row >= rows || column < 0 || column >= columns )
+            throw new IndexOutOfBoundsException( "Field (" + row + ", "
+                                                 + column + ")" );
+        final int bit = column * (rows + 1) + row;
+        if( (discs[0][bit >>> 6] & (1L << bit)) != 0 )
+            return Players.FIRST;
+        if( (discs[1][bit >>> 6] & (1L << bit)) != 0 )
+            return Players.SECOND;
+        return Players.UNDEFINED;
+    }
+    
+    /**
+     * @param column A column.
+     * @return Returns the number of discs in the column.
+     */
+    public int getHeight( int column )
+    {
+        return heights[column];
+    }
+    
+    /** @return Returns the read only log of the moves. */
+    public MoveLog getMoves()
+    {
+        return moves;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Simple Getters & Setters
+    ////////////////////////////////////////////////////////////////////////////
+    public int getRows()
+    {
+        return rows;
+    }
+    
+    public int getColumns()
+    {
+        return columns;
+    }
+    
+    public int getWinLength()
+    {
+        return winLength;
+    }
+    
+    public int getMaxTurns()
+    {
+        return maxTurns;
+    }
+    
+    public Players getCurrentPlayer()
+    {
+        return currentPlayer;
+    }
+    
+    public boolean isGameFinished()
+    {
+        return gameFinished;
+    }
+    
+    public Players getWinner()
+    {
+        return winner;
+    }
+    
+    public int getWinStartRow()
+    {
+        return winStartRow;
+    }
+    
+    public int getWinStartColumn()
+    {
+        return winStartColumn;
+    }
+    
+    public int getWinEndRow()
+    {
+        return winEndRow;
+    }
+    
+    public int getWinEndColumn()
+    {
+        return winEndColumn;
+    }
+    
+    public long getHash()
+    {
+        return hash;
+    }
+}
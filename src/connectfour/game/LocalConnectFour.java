@@ -23,12 +23,13 @@
 package connectfour.game;
 
 import java.util.Arrays;
-import java.util.Stack;
 
 import connectfour.game.IConnectFour.Players;
 
 /**
- * Implementation of a Connect Four game running locally.
+ * Implementation of a Connect Four game running locally. The grid is stored
+ * as one bitboard per player together with the number of discs in each
+ * column, so that moves can be done and undone in constant time.
  */
 public class LocalConnectFour implements Cloneable
 {
@@ -63,11 +64,38 @@ public class LocalConnectFour implements Cloneable
     private Players winner = Players.UNDEFINED;
     
     /**
-     * Saves at which positions discs of which player are. The entries in the
-     * first dimension are the rows of the grid; in the second dimension the
-     * columns. 
+     * Bitboards saving at which positions discs of which player are. The
+     * first dimension is indexed by the {@link Players#ordinal() ordinal} of
+     * the player, the second dimension are the words of the bitboard. The
+     * field in row i and column j is stored in bit j * {@link #columnStride
+     * columnStride} + i.
      */
-    Players[][] grid;
+    long[][] discs;
+    
+    /**
+     * Number of bits used per column in {@link #discs discs}. This is one
+     * more than the number of rows, so that the topmost bit of each column is
+     * always empty and lines of discs do not wrap into the next column.
+     */
+    private int columnStride;
+    
+    /** Number of discs in each column. */
+    int[] heights;
+    
+    /** Zobrist keys for the fields of the bitboards. */
+    private long[] zobristKeys;
+    
+    /**
+     * Zobrist hash of the current position.
+     * @see ZobristKeys
+     */
+    private long hash = 0;
+    
+    /**
+     * Zobrist hash of the position mirrored at the vertical center axis of
+     * the grid.
+     */
+    private long mirroredHash = 0;
     
     /** Saves the start row position of the winning row. */
     private int winStartRow;
@@ -84,7 +112,7 @@ public class LocalConnectFour implements Cloneable
     /**
      * Saves columns the moves of the players for the undo function.
      */
-    private final Stack<Integer> moves = new Stack<Integer>();
+    private final MoveLog moves;
 
     ////////////////////////////////////////////////////////////////////////////
     // Constructors
@@ -128,7 +156,9 @@ public class LocalConnectFour implements Cloneable
     public LocalConnectFour( int rows, int columns, int winLength,
                              Players startPlayer )
     {
-        setGridSize( rows, columns );
+        this.rows = rows;
+        this.columns = columns;
+        moves = new MoveLog( rows * columns );
         setWinLength( winLength );
         if( startPlayer == Players.UNDEFINED )
         {
@@ -141,6 +171,36 @@ public class LocalConnectFour implements Cloneable
         initGrid( rows, columns );
     }
     
+    /**
+     * Creates a game in the state of a snapshot. Only the bitboards and the
+     * column heights are copied, the move log is shared with the snapshot
+     * until it is changed.
+     * @param snapshot The snapshot.
+     * @see GameSnapshot#toGame()
+     */
+    LocalConnectFour( GameSnapshot snapshot )
+    {
+        rows = snapshot.getRows();
+        columns = snapshot.getColumns();
+        winLength = snapshot.getWinLength();
+        maxTurns = snapshot.getMaxTurns();
+        currentPlayer = snapshot.getCurrentPlayer();
+        gameFinished = snapshot.isGameFinished();
+        winner = snapshot.getWinner();
+        winStartRow = snapshot.getWinStartRow();
+        winStartColumn = snapshot.getWinStartColumn();
+        winEndRow = snapshot.getWinEndRow();
+        winEndColumn = snapshot.getWinEndColumn();
+        columnStride = rows + 1;
+        discs = new long[][] { snapshot.discs[0].clone(),
+                               snapshot.discs[1].clone() };
+        heights = snapshot.heights.clone();
+        zobristKeys = ZobristKeys.getKeys( columns * columnStride );
+        hash = snapshot.hash;
+        mirroredHash = snapshot.mirroredHash;
+        moves = new MoveLog( snapshot.moves );
+    }
+    
     ////////////////////////////////////////////////////////////////////////////
     // Methods
     ////////////////////////////////////////////////////////////////////////////
@@ -291,20 +351,137 @@ public class LocalConnectFour implements Cloneable
         }
     }
     
+    /**
+     * Checks whether the game has ended after a disc has been dropped into
+     * the specified field, sets {@link #gameFinished gameFinished} and
+     * {@link #winner winner}. In contrast to {@link #checkAndSetFinished()
+     * checkAndSetFinished()} only the four lines through the specified field
+     * are checked, which needs O(winLength) time and does not allocate any
+     * memory. This is sufficient if the game has not been finished before the
+     * disc was dropped. The winning row is reported in the same way as by the
+     * full check.
+     * @param row Row of the last dropped disc.
+     * @param column Column of the last dropped disc.
+     */
+    protected void checkAndSetFinished( int row, int column )
+    {
+        if( getMaxTurns() > -1 && getMoves().size() >= getMaxTurns() )
+        {
+            setWinner( Players.UNDEFINED );
+            setGameFinished( true );
+            return;
+        }
+        
+        final Players player = getField( row, column );
+        if( player != Players.UNDEFINED )
+        {
+            final long[] own = discs[player.ordinal()];
+            
+            /* The full check reports the winning row which is completed first
+             * when scanning the rows from bottom to top and each row from left
+             * to right. To be consistent the end field (which is where the full
+             * check detects a row) lying first in that order wins. The
+             * directions are ordered like the checks in the full scan.
+             */
+            int winStartRow = -1,
+                winStartColumn = -1, winEndRow = -1, winEndColumn = -1;
+            for( int direction = 0; direction < 4; direction++ )
+            {
+                int dRow, dColumn;
+                switch( direction )
+                {
+                    case 0:  dRow = 0; dColumn =  1; break; // Row
+                    case 1:  dRow = 1; dColumn =  0; break; // Column
+                    case 2:  dRow = 1; dColumn = -1; break; // Diagonal down
+                    default: dRow = 1; dColumn =  1; break; // Diagonal up
+                }
+                
+                final int before = countInDirection( own, row, column,
+                                                     -dRow, -dColumn );
+                if( before + 1 + countInDirection( own, row, column, dRow,
+                                                   dColumn )
+                    < getWinLength() )
+                    continue;
+                
+                final int startRow = row - before * dRow;
+                final int startColumn = column - before * dColumn;
+                final int endRow = startRow + (getWinLength() - 1) * dRow;
+                final int endColumn = startColumn
+                                      + (getWinLength() - 1) * dColumn;
+                if( winEndRow < 0 || endRow < winEndRow
+                    || (endRow == winEndRow && endColumn < winEndColumn) )
+                {
+                    winStartRow = startRow;
+                    winStartColumn = startColumn;
+                    winEndRow = endRow;
+                    winEndColumn = endColumn;
+                }
+            }
+            
+            if( winEndRow >= 0 )
+            {
+                setWinner( player );
+                setGameFinished( true );
+                setWinStartRow( winStartRow );
+                setWinStartColumn( winStartColumn );
+                setWinEndRow( winEndRow );
+                setWinEndColumn( winEndColumn );
+                return;
+            }
+        }
+        
+        for( int i = 0; i < getColumns(); i++ )
+        {
+            if( heights[i] < getRows() )
+                return;
+        }
+        setWinner( Players.UNDEFINED );
+        setGameFinished( true );
+    }
+    
+    /**
+     * Drops a disc without changing the player to move and without checking
+     * whether the game has ended. Used to set up positions which were not
+     * reached by moves, e.g. when decoding them.
+     * @param column Column to drop the disc in. Must not be full.
+     * @param player Owner of the disc.
+     */
+    void placeDisc( int column, Players player )
+    {
+        setField( heights[column], column, player );
+        moves.push( column );
+    }
+    
+    /**
+     * Takes an immutable snapshot of the game. This only copies the
+     * bitboards and the column heights, so it is much cheaper than {@link
+     * #clone() clone()}.
+     * @return The snapshot.
+     */
+    public GameSnapshot getSnapshot()
+    {
+        return new GameSnapshot( this );
+    }
+    
     @Override
     public LocalConnectFour clone()
     {
         LocalConnectFour cloned = new LocalConnectFour(
             getRows(), getColumns(), getWinLength(), getCurrentPlayer() );
-        for( int i = 0; i < getRows(); i++ )
-        {
-            for( int j = 0; j < getColumns(); j++ )
-                cloned.setField( i, j, getField( i, j ) );
-        }
-        for( Integer move : getMoves() )
-            cloned.getMoves().push( move );
+        cloned.setMaxTurns( getMaxTurns() );
+        for( int i = 0; i < discs.length; i++ )
+            System.arraycopy( discs[i], 0, cloned.discs[i], 0,
+                              discs[i].length );
+        System.arraycopy( heights, 0, cloned.heights, 0, heights.length );
+        cloned.hash = hash;
+        cloned.mirroredHash = mirroredHash;
+        cloned.moves.copyFrom( moves );
         cloned.setGameFinished( isGameFinished() );
         cloned.setWinner( getWinner() );
+        cloned.setWinStartRow( getWinStartRow() );
+        cloned.setWinStartColumn( getWinStartColumn() );
+        cloned.setWinEndRow( getWinEndRow() );
+        cloned.setWinEndColumn( getWinEndColumn() );
         return cloned;
     }
     
@@ -326,21 +503,48 @@ public class LocalConnectFour implements Cloneable
         return ((x < 0) == (y < 0)) ? (x + y) : y;
     }
     
+    /**
+     * Counts the discs of a player lying next to each other in one direction
+     * starting next to a field. At most winLength - 1 discs are counted.
+     * @param own Bitboard of the player.
+     * @param row Row of the field to start from. This field is not counted.
+     * @param column Column of the field to start from. This field is not
+     *     counted.
+     * @param dRow Step in row direction.
+     * @param dColumn Step in column direction.
+     * @return Number of discs of the player next to each other.
+     */
+    private int countInDirection( long[] own, int row, int column, int dRow,
+                                  int dColumn )
+    {
+        int count = 0;
+        row += dRow;
+        column += dColumn;
+        while( count < getWinLength() - 1 && 0 <= row && row < getRows()
+               && 0 <= column && column < getColumns() )
+        {
+            final int bit = column * columnStride + row;
+            if( (own[bit >>> 6] & (1L << bit)) == 0 )
+                break;
+            count++;
+            row += dRow;
+            column += dColumn;
+        }
+        return count;
+    }
+    
     public boolean doMove( int column )
     {
         if( !isValidMove( column ) )
             return false;
         
-        int i = 0;
-        for( ; i < getRows() && getField( i, column ) != Players.UNDEFINED;
-             i++ )
-            ;
-        setField( i, column, getCurrentPlayer() );
+        final int row = heights[column];
+        setField( row, column, getCurrentPlayer() );
         setCurrentPlayer( getNextPlayer() );
         
-        getMoves().push( column );
+        moves.push( column );
         
-        checkAndSetFinished();
+        checkAndSetFinished( row, column );
         return true;
     }
     
@@ -352,9 +556,13 @@ public class LocalConnectFour implements Cloneable
      */
     private void initGrid( int rows, int columns )
     {
-        grid = new Players[rows][columns];
-        for( int i = 0; i < rows; i++ )
-            Arrays.fill( grid[i], IConnectFour.Players.UNDEFINED );
+        columnStride = rows + 1;
+        discs = new long[2][(columns * columnStride + 63) >>> 6];
+        heights = new int[columns];
+        zobristKeys = ZobristKeys.getKeys( columns * columnStride );
+        hash = (getCurrentPlayer() == Players.SECOND)
+               ? ZobristKeys.getSideKey() : 0;
+        mirroredHash = hash;
         clearWinPosition();
     }
 
@@ -364,7 +572,7 @@ public class LocalConnectFour implements Cloneable
             return false;
         
         if( 0 <= column && column < getColumns()
-            && getField( getRows() - 1, column ) == Players.UNDEFINED
+            && heights[column] < getRows()
             && !isGameFinished() )
         {
             return true;
@@ -374,19 +582,29 @@ public class LocalConnectFour implements Cloneable
 
     public int[] undo()
     {
-        if( !isUndoPossible() )
+        int column = undoLastMove();
+        if( column < 0 )
             return null;
-        int column = getMoves().pop();
-        int row;
-        for( row = getRows() - 1;
-             row >= 0 && getField( row, column ) == Players.UNDEFINED; row-- )
-            ;
+        return new int[] { heights[column], column };
+    }
+    
+    /**
+     * Undoes the last move like {@link #undo() undo()}, but does not allocate
+     * memory for the return value.
+     * @return The column of the undone move or -1 if undo is not possible.
+     */
+    public int undoLastMove()
+    {
+        if( !isUndoPossible() )
+            return -1;
+        int column = moves.pop();
+        int row = heights[column] - 1;
         setField( row, column, Players.UNDEFINED );
         setCurrentPlayer( getNextPlayer() );
         setGameFinished( false );
         setWinner( Players.UNDEFINED );
         clearWinPosition();
-        return new int[] { row, column };
+        return column;
     }
     
     ////////////////////////////////////////////////////////////////////////////
@@ -401,7 +619,8 @@ public class LocalConnectFour implements Cloneable
         initGrid( getRows(), getColumns() );
     }
     
-    public Stack<Integer> getMoves()
+    /** @return Returns the read only log of the moves done so far. */
+    public MoveLog getMoves()
     {
         return moves;
     }
@@ -417,7 +636,7 @@ public class LocalConnectFour implements Cloneable
     
     public boolean isUndoPossible()
     {
-        return !getMoves().empty();
+        return !getMoves().isEmpty();
     }
 
     public int getColumns()
@@ -425,6 +644,136 @@ public class LocalConnectFour implements Cloneable
         return columns;
     }
     
+    /**
+     * @return Returns the Zobrist hash of the current position including the
+     *     player who has to move.
+     * @see ZobristKeys
+     */
+    public long getHash()
+    {
+        return hash;
+    }
+    
+    /**
+     * @return Returns the Zobrist hash of the current position mirrored at
+     *     the vertical center axis of the grid.
+     */
+    public long getMirroredHash()
+    {
+        return mirroredHash;
+    }
+    
+    /**
+     * A position and its mirror image are equivalent. The canonical hash is
+     * the same for both of them, so that caches can treat them as one
+     * position.
+     * @return Returns the smaller one of {@link #getHash() getHash()} and
+     *     {@link #getMirroredHash() getMirroredHash()}.
+     * @see #isCanonicalMirrored()
+     */
+    public long getCanonicalHash()
+    {
+        return (mirroredHash < hash) ? mirroredHash : hash;
+    }
+    
+    /**
+     * Moves stored with the {@link #getCanonicalHash() canonical hash} refer
+     * to the canonical position and have to be mirrored with {@link
+     * #mirrorColumn(int) mirrorColumn()} if this method returns true.
+     * @return Returns whether the canonical hash is the hash of the mirrored
+     *     position.
+     */
+    public boolean isCanonicalMirrored()
+    {
+        return mirroredHash < hash;
+    }
+    
+    /**
+     * Returns the canonical hash of the position as if the first player had
+     * begun the game. For games begun by the second player the colours of
+     * the discs and the player to move are swapped, so that the same moves
+     * lead to the same hash no matter which player began. Thus data computed
+     * for games begun by the first player, like an opening book, can be used
+     * for all games. The hash is computed from the grid for games begun by
+     * the second player and not updated incrementally.
+     * @return The hash. It equals {@link #getCanonicalHash()
+     *     getCanonicalHash()} for games begun by the first player.
+     * @see #isStartRelativeMirrored()
+     */
+    public long getStartRelativeHash()
+    {
+        if( getStartPlayer() != Players.SECOND )
+            return getCanonicalHash();
+        final long swapped = getSwappedHash( false );
+        final long swappedMirrored = getSwappedHash( true );
+        return (swappedMirrored < swapped) ? swappedMirrored : swapped;
+    }
+    
+    /**
+     * Moves stored with the {@link #getStartRelativeHash() start relative
+     * hash} have to be mirrored if this method returns true.
+     * @return Returns whether the start relative hash is the hash of the
+     *     mirrored position.
+     */
+    public boolean isStartRelativeMirrored()
+    {
+        if( getStartPlayer() != Players.SECOND )
+            return isCanonicalMirrored();
+        return getSwappedHash( true ) < getSwappedHash( false );
+    }
+    
+    /**
+     * Computes the hash of the position with the colours of the discs and
+     * the player to move swapped.
+     * @param mirrored Whether to hash the mirrored position.
+     * @return The hash.
+     */
+    private long getSwappedHash( boolean mirrored )
+    {
+        long swapped = (getCurrentPlayer() == Players.FIRST)
+                       ? ZobristKeys.getSideKey() : 0;
+        for( int column = 0; column < getColumns(); column++ )
+        {
+            final int keyColumn = mirrored ? mirrorColumn( column ) : column;
+            for( int row = 0; row < heights[column]; row++ )
+                swapped ^= zobristKeys[2 * (keyColumn * columnStride + row)
+                                       + 1 - getField( row, column ).ordinal()];
+        }
+        return swapped;
+    }
+    
+    /**
+     * @return Returns whether the current position equals its mirror image.
+     */
+    public boolean isSymmetric()
+    {
+        if( hash != mirroredHash )
+            return false;
+        
+        /* Equal hashes are only a strong hint. Verify it. */
+        for( int column = 0; column < getColumns() / 2; column++ )
+        {
+            final int mirrored = mirrorColumn( column );
+            if( heights[column] != heights[mirrored] )
+                return false;
+            for( int row = 0; row < heights[column]; row++ )
+            {
+                if( getField( row, column ) != getField( row, mirrored ) )
+                    return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @param column A column.
+     * @return Returns the column at the mirrored position.
+     */
+    public int mirrorColumn( int column )
+    {
+        return getColumns() - 1 - column;
+    }
+    
     public Players getCurrentPlayer()
     {
         return currentPlayer;
@@ -432,6 +781,16 @@ public class LocalConnectFour implements Cloneable
     
     public void setCurrentPlayer( Players currentPlayer )
     {
+        if( this.currentPlayer == Players.SECOND )
+        {
+            hash ^= ZobristKeys.getSideKey();
+            mirroredHash ^= ZobristKeys.getSideKey();
+        }
+        if( currentPlayer == Players.SECOND )
+        {
+            hash ^= ZobristKeys.getSideKey();
+            mirroredHash ^= ZobristKeys.getSideKey();
+        }
         this.currentPlayer = currentPlayer;
     }
 
@@ -488,19 +847,67 @@ public class LocalConnectFour implements Cloneable
     ////////////////////////////////////////////////////////////////////////////
     // Advanced Getters
     ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the index of the bit representing a field in the bitboards.
+     * @param row The row in which the field lies.
+     * @param column The column in which the field lies.
+     * @return Index of the bit in {@link #discs discs}.
+     */
+    protected int getBitIndex( int row, int column )
+        throws IndexOutOfBoundsException
+    {
+        if( row < 0 || row >= getRows() || column < 0
+            || column >= getColumns() )
+            throw new IndexOutOfBoundsException( "Field (" + row + ", "
+                                                 + column + ")" );
+        return column * columnStride + row;
+    }
+    
+    /** @return Returns the number of bits used per column in the bitboards. */
+    protected int getColumnStride()
+    {
+        return columnStride;
+    }
+    
     public Players getField( int row, int column )
         throws IndexOutOfBoundsException
     {
-        return grid[row][column];
+        final int bit = getBitIndex( row, column );
+        if( (discs[0][bit >>> 6] & (1L << bit)) != 0 )
+            return Players.FIRST;
+        if( (discs[1][bit >>> 6] & (1L << bit)) != 0 )
+            return Players.SECOND;
+        return Players.UNDEFINED;
+    }
+    
+    /**
+     * @param column Column of which the height should be returned.
+     * @return Returns the number of discs in the specified column. This is
+     *     also the row in which the next disc dropped in this column will land.
+     */
+    public int getHeight( int column )
+    {
+        return heights[column];
     }
     
     public Players getNextPlayer()
     {
-        if( getCurrentPlayer() == Players.UNDEFINED )
-            return Players.UNDEFINED;
-        else
-            return Players.class.getEnumConstants()[
-                1 - getCurrentPlayer().ordinal()];
+        switch( getCurrentPlayer() )
+        {
+            case FIRST:  return Players.SECOND;
+            case SECOND: return Players.FIRST;
+            default:     return Players.UNDEFINED;
+        }
+    }
+    
+    /**
+     * @return Returns the player who began the game. It is derived from the
+     *     current player and the number of moves done.
+     */
+    public Players getStartPlayer()
+    {
+        return (getMoves().size() % 2 == 0) ? getCurrentPlayer()
+                                            : getNextPlayer();
     }
     
     ////////////////////////////////////////////////////////////////////////////
@@ -515,7 +922,39 @@ public class LocalConnectFour implements Cloneable
     protected void setField( int row, int column, Players player )
         throws IndexOutOfBoundsException
     {
-        grid[row][column] = player;
+        final int bit = getBitIndex( row, column );
+        final int mirroredBit = bit + (getColumns() - 1 - 2 * column)
+                                      * columnStride;
+        final int word = bit >>> 6;
+        final long mask = 1L << bit;
+        if( (discs[0][word] & mask) != 0 )
+        {
+            hash ^= zobristKeys[2 * bit];
+            mirroredHash ^= zobristKeys[2 * mirroredBit];
+        }
+        if( (discs[1][word] & mask) != 0 )
+        {
+            hash ^= zobristKeys[2 * bit + 1];
+            mirroredHash ^= zobristKeys[2 * mirroredBit + 1];
+        }
+        discs[0][word] &= ~mask;
+        discs[1][word] &= ~mask;
+        if( player != Players.UNDEFINED )
+        {
+            discs[player.ordinal()][word] |= mask;
+            hash ^= zobristKeys[2 * bit + player.ordinal()];
+            mirroredHash ^= zobristKeys[2 * mirroredBit + player.ordinal()];
+            if( row >= heights[column] )
+                heights[column] = row + 1;
+        }
+        else if( row == heights[column] - 1 )
+        {
+            int height = row;
+            while( height > 0
+                   && getField( height - 1, column ) == Players.UNDEFINED )
+                height--;
+            heights[column] = height;
+        }
     }
     
     /**
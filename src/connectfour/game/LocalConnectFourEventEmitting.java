@@ -76,11 +76,7 @@ public class LocalConnectFourEventEmitting extends LocalConnectFour implements
         IConnectFour.Players player = getCurrentPlayer();
         if( !super.doMove( column ) )
             return false;
-        int row = getRows() - 1;
-        for( ; row > 0 && getField( row, column )
-                          == IConnectFour.Players.UNDEFINED;
-             row-- )
-            ;
+        int row = getHeight( column ) - 1;
         MoveDoneEvent e = new MoveDoneEvent( this, row, column, player );
         for( MoveDoneListener l : moveDoneListener )
             l.moveDone( e );
@@ -0,0 +1,207 @@
+/* ConnectFour
+ * File: MoveLog.java
+ * Creation: 21.10.2026 09:48:26
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Columns of the moves done in a {@link LocalConnectFour game} in the order
+ * of the moves. The columns are stored in a growable int array, so adding
+ * and removing moves neither allocates memory (once the array is large
+ * enough) nor needs any locking. Only the game can change the log, for all
+ * other classes it is read only.
+ * <p>
+ * Logs can share their array with {@link #MoveLog(MoveLog) copies}. A log
+ * copies the array before it writes to a shared array, so a copy takes
+ * constant time.
+ */
+public final class MoveLog implements Iterable<Integer>
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Columns of the moves. Only the first {@link #size size} are used. */
+    private int[] columns;
+    
+    /** Number of moves. */
+    private int size = 0;
+    
+    /**
+     * Whether {@link #columns columns} may be used by another log and has to
+     * be copied before writing to it.
+     */
+    private boolean shared = false;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param capacity Initial capacity. Usually the number of fields of the
+     *     grid, so that the array never has to grow.
+     */
+    MoveLog( int capacity )
+    {
+        columns = new int[Math.max( capacity, 1 )];
+    }
+    
+    /**
+     * Creates a copy of a log which shares the array with the other log.
+     * @param other The log to copy.
+     */
+    MoveLog( MoveLog other )
+    {
+        columns = other.columns;
+        size = other.size;
+        shared = true;
+        if( !other.shared )
+            other.shared = true;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Appends a move.
+     * @param column Column of the move.
+     */
+    void push( int column )
+    {
+        if( shared || size == columns.length )
+        {
+            columns = Arrays.copyOf( columns, (size == columns.length)
+                                              ? 2 * columns.length
+                                              : columns.length );
+            shared = false;
+        }
+        columns[size++] = column;
+    }
+    
+    /**
+     * Removes the last move.
+     * @return The column of the removed move.
+     * @throws IllegalStateException If the log is empty.
+     */
+    int pop()
+    {
+        if( size == 0 )
+            throw new IllegalStateException( "No moves to remove." );
+        return columns[--size];
+    }
+    
+    /**
+     * Replaces the content by the content of another log.
+     * @param other The other log.
+     */
+    void copyFrom( MoveLog other )
+    {
+        if( shared || columns.length < other.size )
+        {
+            columns = new int[Math.max( other.size, columns.length )];
+            shared = false;
+        }
+        System.arraycopy( other.columns, 0, columns, 0, other.size );
+        size = other.size;
+    }
+    
+    /** @return Returns the column of the last move or -1 if there is none. */
+    public int peek()
+    {
+        return (size > 0) ? columns[size - 1] : -1;
+    }
+    
+    /**
+     * @param index Index of the move. The first move has the index 0.
+     * @return Returns the column of the move.
+     * @throws IndexOutOfBoundsException If there is no move with the index.
+     */
+    public int get( int index )
+    {
+        if( index < 0 || index >= size )
+            throw new IndexOutOfBoundsException( "Index: " + index
+                                                 + ", Size: " + size );
+        return columns[index];
+    }
+    
+    public int size()
+    {
+        return size;
+    }
+    
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+    
+    /** @return Returns a copy of the columns of the moves. */
+    public int[] toArray()
+    {
+        return Arrays.copyOf( columns, size );
+    }
+    
+    /**
+     * @return Returns an iterator over the columns of the moves from the
+     *     first to the last move. The iterator does not support removing.
+     */
+    @Override
+    public Iterator<Integer> iterator()
+    {
+        return new Iterator<Integer>() {
+            private int next = 0;
+            
+            @Override
+            public boolean hasNext()
+            {
+                return next < size;
+            }
+            
+            @Override
+            public Integer next()
+            {
+                if( next >= size )
+                    throw new NoSuchElementException();
+                return columns[next++];
+            }
+            
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder( "[" );
+        for( int i = 0; i < size; i++ )
+        {
+            if( i > 0 )
+                builder.append( ", " );
+            builder.append( columns[i] );
+        }
+        return builder.append( ']' ).toString();
+    }
+}
@@ -0,0 +1,298 @@
+/* ConnectFour
+ * File: OpeningBook.java
+ * Creation: 19.10.2026 11:02:47
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Opening book with the best moves for positions at the beginning of the
+ * game. The book is stored in a binary file which is memory mapped, so that it
+ * does not need any heap and is available instantly.
+ * <p>
+ * Positions are stored by their {@link
+ * LocalConnectFour#getStartRelativeHash() start relative hash}, so that a
+ * position and its mirror image share one entry and the book can be used no
+ * matter which player began the game. The moves refer to the canonical
+ * position and have to be mirrored if {@link
+ * LocalConnectFour#isStartRelativeMirrored()} is true for a position.
+ * <p>
+ * The file starts with a header of six ints: the magic number 0x43464f42
+ * ("CFOB"), the version of the format, the number of rows, the number of
+ * columns, the win length and the number of entries. Each entry consists of
+ * the hash of the position (a long), the rating of the best move from the view
+ * of the player to move (an int), the column of the best move (a short) and
+ * the recursion depth of the search which found the move (a short). The
+ * entries are sorted by their hash, so that they can be found by a binary
+ * search.
+ */
+public class OpeningBook
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Magic number at the beginning of an opening book file. */
+    private final static int magic = 0x43464f42;
+    
+    /** Version of the file format. */
+    private final static int version = 2;
+    
+    /** Size of the file header in bytes. */
+    private final static int headerSize = 24;
+    
+    /** Size of an entry in bytes. */
+    private final static int entrySize = 16;
+    
+    /** Memory mapped content of the file. */
+    private final ByteBuffer buffer;
+    
+    /** Configuration of the games the book was generated for. */
+    private final int rows, columns, winLength;
+    
+    /** Number of entries in the book. */
+    private final int entries;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Maps an opening book file into memory.
+     * @param file The opening book file.
+     * @throws IOException If the file could not be read or is not a valid
+     *     opening book.
+     */
+    public OpeningBook( File file ) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            if( channel.size() < headerSize )
+                throw new IOException( "Not an opening book: " + file );
+            buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0,
+                                  channel.size() );
+        }
+        finally
+        {
+            raf.close();
+        }
+        
+        if( buffer.getInt( 0 ) != magic )
+            throw new IOException( "Not an opening book: " + file );
+        if( buffer.getInt( 4 ) != version )
+            throw new IOException( "Unsupported opening book version "
+                                   + buffer.getInt( 4 ) + ": " + file );
+        rows = buffer.getInt( 8 );
+        columns = buffer.getInt( 12 );
+        winLength = buffer.getInt( 16 );
+        entries = buffer.getInt( 20 );
+        if( entries < 0
+            || buffer.capacity() < headerSize + (long) entries * entrySize )
+            throw new IOException( "Truncated opening book: " + file );
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Writes an opening book file. The entries do not need to be sorted.
+     * @param file File to write.
+     * @param rows Number of rows of the grid.
+     * @param columns Number of columns of the grid.
+     * @param winLength Discs needed in a row to win.
+     * @param hashes Start relative hashes of the positions.
+     * @param ratings Ratings of the best moves from the view of the player to
+     *     move.
+     * @param moves Columns of the best moves in the canonical positions.
+     * @param depths Recursion depths of the searches which found the moves.
+     * @param count Number of entries to write.
+     * @throws IOException If the file could not be written.
+     */
+    public static void write( File file, int rows, int columns, int winLength,
+                              long[] hashes, int[] ratings, int[] moves,
+                              int[] depths, int count ) throws IOException
+    {
+        /* Sort the entry indices by hash. */
+        Integer[] order = new Integer[count];
+        for( int i = 0; i < count; i++ )
+            order[i] = i;
+        final long[] keys = hashes;
+        Arrays.sort( order, new Comparator<Integer>() {
+            @Override
+            public int compare( Integer a, Integer b )
+            {
+                return (keys[a] < keys[b]) ? -1 : ((keys[a] > keys[b]) ? 1 : 0);
+            }
+        } );
+        
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream(
+            new FileOutputStream( file ) ) );
+        try
+        {
+            out.writeInt( magic );
+            out.writeInt( version );
+            out.writeInt( rows );
+            out.writeInt( columns );
+            out.writeInt( winLength );
+            out.writeInt( count );
+            for( int i = 0; i < count; i++ )
+            {
+                final int k = order[i];
+                if( i > 0 && hashes[k] == hashes[order[i - 1]] )
+                    throw new IllegalArgumentException(
+                        "Duplicate hash in opening book." );
+                out.writeLong( hashes[k] );
+                out.writeInt( ratings[k] );
+                out.writeShort( moves[k] );
+                out.writeShort( depths[k] );
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param game A game.
+     * @return Returns whether the book was generated for games with the same
+     *     number of rows and columns and the same win length as the game.
+     */
+    public boolean fits( LocalConnectFour game )
+    {
+        return game.getRows() == rows && game.getColumns() == columns
+               && game.getWinLength() == winLength;
+    }
+    
+    /**
+     * Looks up the position of a game in the book.
+     * @param game The game.
+     * @return Index of the entry for the position or -1 if the position is
+     *     not in the book.
+     */
+    public int find( LocalConnectFour game )
+    {
+        if( !fits( game ) )
+            return -1;
+        return find( game.getStartRelativeHash() );
+    }
+    
+    /**
+     * Looks up a hash with a binary search.
+     * @param hash Hash of a position.
+     * @return Index of the entry with the hash or -1 if the book contains no
+     *     such entry.
+     */
+    public int find( long hash )
+    {
+        int low = 0, high = entries - 1;
+        while( low <= high )
+        {
+            final int mid = (low + high) >>> 1;
+            final long midHash = getHash( mid );
+            if( midHash < hash )
+                low = mid + 1;
+            else if( midHash > hash )
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+    
+    /**
+     * @param index Index of an entry.
+     * @return Returns the hash of the position of the entry.
+     */
+    public long getHash( int index )
+    {
+        return buffer.getLong( headerSize + index * entrySize );
+    }
+    
+    /**
+     * @param index Index of an entry.
+     * @return Returns the rating of the best move of the entry from the view
+     *     of the player to move.
+     */
+    public int getRating( int index )
+    {
+        return buffer.getInt( headerSize + index * entrySize + 8 );
+    }
+    
+    /**
+     * @param index Index of an entry.
+     * @return Returns the column of the best move of the entry in the
+     *     canonical position.
+     */
+    public int getMove( int index )
+    {
+        return buffer.getShort( headerSize + index * entrySize + 12 );
+    }
+    
+    /**
+     * @param index Index of an entry.
+     * @return Returns the recursion depth of the search which found the best
+     *     move of the entry.
+     */
+    public int getDepth( int index )
+    {
+        return buffer.getShort( headerSize + index * entrySize + 14 );
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Simple Getters & Setters
+    ////////////////////////////////////////////////////////////////////////////
+    public int getRows()
+    {
+        return rows;
+    }
+    
+    public int getColumns()
+    {
+        return columns;
+    }
+    
+    public int getWinLength()
+    {
+        return winLength;
+    }
+    
+    /**
+     * @return Returns the number of entries in the book.
+     */
+    public int getEntries()
+    {
+        return entries;
+    }
+}
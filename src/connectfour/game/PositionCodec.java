@@ -0,0 +1,340 @@
+/* ConnectFour
+ * File: PositionCodec.java
+ * Creation: 21.10.2026 16:44:03
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import java.nio.ByteBuffer;
+
+import connectfour.game.IConnectFour.Players;
+
+/**
+ * Encodes positions of {@link LocalConnectFour LocalConnectFour} in a compact
+ * binary format and decodes them again.
+ * <p>
+ * An encoded position starts with the version of the format (a byte) and a
+ * byte of flags: bit 0 is set for the {@link Format#DISCS disc format},
+ * bit 1 if the second player begins the game (move format) or has to move
+ * (disc format). The number of rows, the number of columns, the win length
+ * and the maximum number of turns plus one follow as unsigned varints (seven
+ * bits per byte, least significant group first, the highest bit set if more
+ * bytes follow).
+ * <p>
+ * In the {@link Format#MOVES move format} the number of moves follows as
+ * varint, then the columns of the moves packed with as few bits as needed
+ * for the number of columns (e.g. three bits on a grid with seven columns).
+ * In the {@link Format#DISCS disc format} the heights of the columns follow,
+ * packed with as few bits as needed for the number of rows, then one bit per
+ * disc (column by column, bottom up), which is set for discs of the second
+ * player. Bits are filled into the bytes starting at the least significant
+ * bit. The last byte is padded with zero bits.
+ * <p>
+ * Encoding and decoding only allocate the decoded game (and the array for
+ * {@link #encode(LocalConnectFour, Format) encode(game, format)}).
+ */
+public class PositionCodec
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Enumerations
+    ////////////////////////////////////////////////////////////////////////////
+    /** Ways to encode a position. */
+    public enum Format
+    {
+        /**
+         * Stores the moves of the game. The decoded game has the same move
+         * log as the encoded one.
+         */
+        MOVES,
+        
+        /**
+         * Stores the discs in the grid and the player to move. This is
+         * shorter for games with many moves, but the order of the moves is
+         * lost: The move log of the decoded game lists the columns of the
+         * discs column by column.
+         */
+        DISCS
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Version of the format written by this class. */
+    private final static int version = 1;
+    
+    /** Flag set for the disc format. */
+    private final static int discsFlag = 1;
+    
+    /** Flag set if the second player begins or has to move. */
+    private final static int secondPlayerFlag = 2;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    private PositionCodec()
+    {
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param rows Number of rows.
+     * @param columns Number of columns.
+     * @return Returns the maximum number of bytes of an encoded position of a
+     *     game with the passed grid size.
+     */
+    public static int getMaxEncodedSize( int rows, int columns )
+    {
+        final int fields = rows * columns;
+        final int moveBits = fields * getBitsFor( columns - 1 );
+        final int discBits = columns * getBitsFor( rows ) + fields;
+        return 2 + 4 * 5 + 5 + (Math.max( moveBits, discBits ) + 7) / 8;
+    }
+    
+    /**
+     * Encodes a position.
+     * @param game The game to encode.
+     * @param format Format to use.
+     * @return The encoded position.
+     */
+    public static byte[] encode( LocalConnectFour game, Format format )
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( getMaxEncodedSize(
+            game.getRows(), game.getColumns() ) );
+        encode( game, format, buffer );
+        byte[] encoded = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get( encoded );
+        return encoded;
+    }
+    
+    /**
+     * Encodes a position and writes it to a buffer.
+     * @param game The game to encode.
+     * @param format Format to use.
+     * @param out Buffer to write to. It should have at least {@link
+     *     #getMaxEncodedSize(int, int) getMaxEncodedSize()} bytes remaining.
+     * @throws java.nio.BufferOverflowException If the buffer is too small.
+     */
+    public static void encode( LocalConnectFour game, Format format,
+                               ByteBuffer out )
+    {
+        final MoveLog moves = game.getMoves();
+        Players player = game.getCurrentPlayer();
+        if( format == Format.MOVES && moves.size() % 2 == 1 )
+            player = game.getNextPlayer();
+        
+        out.put( (byte) version );
+        out.put( (byte) (((format == Format.DISCS) ? discsFlag : 0)
+                         | ((player == Players.SECOND) ? secondPlayerFlag
+                                                       : 0)) );
+        putVarint( out, game.getRows() );
+        putVarint( out, game.getColumns() );
+        putVarint( out, game.getWinLength() );
+        putVarint( out, game.getMaxTurns() + 1 );
+        
+        long bits = 0;
+        int count = 0;
+        if( format == Format.MOVES )
+        {
+            putVarint( out, moves.size() );
+            final int width = getBitsFor( game.getColumns() - 1 );
+            for( int i = 0; i < moves.size(); i++ )
+            {
+                bits |= (long) moves.get( i ) << count;
+                count += width;
+                for( ; count >= 8; count -= 8, bits >>>= 8 )
+                    out.put( (byte) bits );
+            }
+        }
+        else
+        {
+            final int width = getBitsFor( game.getRows() );
+            for( int column = 0; column < game.getColumns(); column++ )
+            {
+                bits |= (long) game.getHeight( column ) << count;
+                count += width;
+                for( ; count >= 8; count -= 8, bits >>>= 8 )
+                    out.put( (byte) bits );
+            }
+            for( int column = 0; column < game.getColumns(); column++ )
+            {
+                for( int row = 0; row < game.getHeight( column ); row++ )
+                {
+                    if( game.getField( row, column ) == Players.SECOND )
+                        bits |= 1L << count;
+                    if( ++count == 8 )
+                    {
+                        out.put( (byte) bits );
+                        bits = 0;
+                        count = 0;
+                    }
+                }
+            }
+        }
+        if( count > 0 )
+            out.put( (byte) bits );
+    }
+    
+    /**
+     * Decodes a position.
+     * @param data The encoded position.
+     * @return The decoded game.
+     * @throws IllegalArgumentException If the data is not a valid position.
+     */
+    public static LocalConnectFour decode( byte[] data )
+    {
+        return decode( ByteBuffer.wrap( data ) );
+    }
+    
+    /**
+     * Decodes a position read from a buffer. The position of the buffer is
+     * advanced to the end of the encoded position.
+     * @param in Buffer to read from.
+     * @return The decoded game.
+     * @throws IllegalArgumentException If the data is not a valid position or
+     *     has an unknown version.
+     * @throws java.nio.BufferUnderflowException If the data is truncated.
+     */
+    public static LocalConnectFour decode( ByteBuffer in )
+    {
+        final int dataVersion = in.get() & 0xff;
+        if( dataVersion != version )
+            throw new IllegalArgumentException( "Unsupported version "
+                                                + dataVersion + "." );
+        final int flags = in.get() & 0xff;
+        final int rows = getVarint( in );
+        final int columns = getVarint( in );
+        final int winLength = getVarint( in );
+        final int maxTurns = getVarint( in ) - 1;
+        if( rows < 1 || columns < 1 || winLength < 1
+            || (long) rows * columns > Integer.MAX_VALUE / 2 )
+            throw new IllegalArgumentException( "Invalid grid size." );
+        final Players player = ((flags & secondPlayerFlag) != 0)
+                               ? Players.SECOND : Players.FIRST;
+        
+        long bits = 0;
+        int count = 0;
+        LocalConnectFour game;
+        if( (flags & discsFlag) == 0 )
+        {
+            game = new LocalConnectFour( rows, columns, winLength, player );
+            game.setMaxTurns( maxTurns );
+            final int moves = getVarint( in );
+            final int width = getBitsFor( columns - 1 );
+            final long mask = (1L << width) - 1;
+            for( int i = 0; i < moves; i++ )
+            {
+                for( ; count < width; count += 8 )
+                    bits |= (long) (in.get() & 0xff) << count;
+                if( !game.doMove( (int) (bits & mask) ) )
+                    throw new IllegalArgumentException( "Invalid move "
+                        + (bits & mask) + " after moves " + game.getMoves()
+                        + "." );
+                bits >>>= width;
+                count -= width;
+            }
+        }
+        else
+        {
+            game = new LocalConnectFour( rows, columns, winLength,
+                                         Players.FIRST );
+            final int width = getBitsFor( rows );
+            final long mask = (1L << width) - 1;
+            final int[] heights = new int[columns];
+            for( int column = 0; column < columns; column++ )
+            {
+                for( ; count < width; count += 8 )
+                    bits |= (long) (in.get() & 0xff) << count;
+                heights[column] = (int) (bits & mask);
+                if( heights[column] > rows )
+                    throw new IllegalArgumentException( "Invalid height of "
+                        + "column " + column + "." );
+                bits >>>= width;
+                count -= width;
+            }
+            for( int column = 0; column < columns; column++ )
+            {
+                for( int row = 0; row < heights[column]; row++ )
+                {
+                    if( count == 0 )
+                    {
+                        bits = in.get() & 0xff;
+                        count = 8;
+                    }
+                    game.placeDisc( column, ((bits & 1) != 0)
+                                            ? Players.SECOND : Players.FIRST );
+                    bits >>>= 1;
+                    count--;
+                }
+            }
+            game.setCurrentPlayer( player );
+            game.setMaxTurns( maxTurns );
+            game.checkAndSetFinished();
+        }
+        return game;
+    }
+    
+    /**
+     * @param value A non-negative number.
+     * @return Returns the number of bits needed to store the number (at
+     *     least 1).
+     */
+    private static int getBitsFor( int value )
+    {
+        return Math.max( 1, 32 - Integer.numberOfLeadingZeros( value ) );
+    }
+    
+    /**
+     * Writes an unsigned varint.
+     * @param out Buffer to write to.
+     * @param value The value. Treated as unsigned.
+     */
+    private static void putVarint( ByteBuffer out, int value )
+    {
+        while( (value & ~0x7f) != 0 )
+        {
+            out.put( (byte) ((value & 0x7f) | 0x80) );
+            value >>>= 7;
+        }
+        out.put( (byte) value );
+    }
+    
+    /**
+     * Reads an unsigned varint.
+     * @param in Buffer to read from.
+     * @return The value.
+     * @throws IllegalArgumentException If the varint is longer than five
+     *     bytes.
+     */
+    private static int getVarint( ByteBuffer in )
+    {
+        int value = 0;
+        for( int shift = 0; shift < 35; shift += 7 )
+        {
+            final int b = in.get() & 0xff;
+            value |= (b & 0x7f) << shift;
+            if( (b & 0x80) == 0 )
+                return value;
+        }
+        throw new IllegalArgumentException( "Invalid varint." );
+    }
+}
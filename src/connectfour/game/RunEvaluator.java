@@ -0,0 +1,195 @@
+/* ConnectFour
+ * File: RunEvaluator.java
+ * Creation: 24.10.2026 09:21:14
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+/**
+ * Keeps the rating of {@link ConnectFourAi#rate(LocalConnectFour)
+ * ConnectFourAi.rate()} up to date while discs are added and removed. That
+ * rating is the sum of the ratings of all rows, columns and diagonals. A
+ * changed field only changes the four lines through it, so only their
+ * ratings are subtracted and added again. The lines are rated by the
+ * methods of the AI, so that the result is always the same as the one of
+ * rate().
+ * <p>
+ * Changed lines are only marked and rated when the rating is requested,
+ * because most moves of a search are undone before a position is rated.
+ */
+class RunEvaluator
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** AI rating the lines. */
+    private final ConnectFourAi ai;
+    
+    /** Size of the game grid. */
+    private final int rows, columns;
+    
+    /** Discs needed in a row to win. */
+    private final int winLength;
+    
+    /** Number of rated diagonals in each direction. */
+    private final int diagonals;
+    
+    /**
+     * Ratings of the rows, the columns, the diagonals going down and the
+     * diagonals going up, in this order.
+     */
+    private final int[] lineRatings;
+    
+    /** Sum of all line ratings. */
+    private int rating = 0;
+    
+    /** Whether a line has to be rated again. */
+    private final boolean[] changed;
+    
+    /** Indices of the lines which have to be rated again. */
+    private final int[] changedLines;
+    
+    /** Number of valid entries in {@link #changedLines changedLines}. */
+    private int changedCount = 0;
+    
+    /** The rated game. */
+    private LocalConnectFour game;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param ai AI rating the lines.
+     * @param game Game of which the grid size and win length are used.
+     */
+    public RunEvaluator( ConnectFourAi ai, LocalConnectFour game )
+    {
+        this.ai = ai;
+        rows = game.getRows();
+        columns = game.getColumns();
+        winLength = game.getWinLength();
+        diagonals = ConnectFourAi.getDiagonalCount( game );
+        lineRatings = new int[rows + columns + 2 * diagonals];
+        changed = new boolean[lineRatings.length];
+        changedLines = new int[lineRatings.length];
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Checks whether this evaluator can be used for a game.
+     * @param game Game to check.
+     * @return true if the evaluator has been created for the grid size and
+     *     win length of the game.
+     */
+    public boolean fits( LocalConnectFour game )
+    {
+        return game.getRows() == rows && game.getColumns() == columns
+               && game.getWinLength() == winLength;
+    }
+    
+    /**
+     * Rates all lines of a game. The game is kept to update the rating
+     * later.
+     * @param game The game. It has to {@link #fits(LocalConnectFour) fit} to
+     *     this evaluator.
+     */
+    public void reset( LocalConnectFour game )
+    {
+        this.game = game;
+        rating = 0;
+        changedCount = 0;
+        for( int line = 0; line < lineRatings.length; line++ )
+        {
+            changed[line] = false;
+            lineRatings[line] = rateLine( line );
+            rating += lineRatings[line];
+        }
+    }
+    
+    /**
+     * Marks the lines through a field to be rated again after a disc has
+     * been added to or removed from it.
+     * @param row Row of the field.
+     * @param column Column of the field.
+     */
+    public void update( int row, int column )
+    {
+        markChanged( row );
+        markChanged( rows + column );
+        final int down = column + row - (winLength - 1);
+        if( down >= 0 && down < diagonals )
+            markChanged( rows + columns + down );
+        final int up = column + (rows - 1 - row) - (winLength - 1);
+        if( up >= 0 && up < diagonals )
+            markChanged( rows + columns + diagonals + up );
+    }
+    
+    /**
+     * @return Returns the rating of the current position, which equals
+     *     {@link ConnectFourAi#rate(LocalConnectFour) rate()} unless the game
+     *     is finished.
+     */
+    public int getRating()
+    {
+        for( int i = 0; i < changedCount; i++ )
+        {
+            final int line = changedLines[i];
+            final int lineRating = rateLine( line );
+            rating += lineRating - lineRatings[line];
+            lineRatings[line] = lineRating;
+            changed[line] = false;
+        }
+        changedCount = 0;
+        return rating;
+    }
+    
+    /**
+     * Marks a line to be rated again.
+     * @param line Index of the line in {@link #lineRatings lineRatings}.
+     */
+    private void markChanged( int line )
+    {
+        if( !changed[line] )
+        {
+            changed[line] = true;
+            changedLines[changedCount++] = line;
+        }
+    }
+    
+    /**
+     * Rates a line of the game with the methods of the AI.
+     * @param line Index of the line in {@link #lineRatings lineRatings}.
+     * @return Rating of the line.
+     */
+    private int rateLine( int line )
+    {
+        if( line < rows )
+            return ai.rateRow( game, line );
+        line -= rows;
+        if( line < columns )
+            return ai.rateColumn( game, line );
+        line -= columns;
+        if( line < diagonals )
+            return ai.rateDiagonal( game, line, true );
+        return ai.rateDiagonal( game, line - diagonals, false );
+    }
+}
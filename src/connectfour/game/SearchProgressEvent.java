@@ -0,0 +1,155 @@
+/* ConnectFour
+ * File: SearchProgressEvent.java
+ * Creation: 19.10.2026 16:27:44
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import java.util.EventObject;
+
+/**
+ * This event is emitted by {@link ConnectFourAi ConnectFourAi} to report the
+ * progress of a search.
+ */
+public class SearchProgressEvent extends EventObject
+{
+    private static final long serialVersionUID = 1L;
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Recursion depth of the deepest completed iteration. */
+    private int depth;
+    
+    /** Number of nodes visited so far. */
+    private long nodes;
+    
+    /** Time in milliseconds since the search started. */
+    private long elapsedTime;
+    
+    /** Best move found so far or -1. */
+    private int bestMove;
+    
+    /** Rating of the best move from the view of the AI. */
+    private int rating;
+    
+    /** Whether the search has finished. */
+    private boolean finished;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param source AI emitting the event.
+     * @param depth Recursion depth of the deepest completed iteration.
+     * @param nodes Number of nodes visited so far.
+     * @param elapsedTime Time in milliseconds since the search started.
+     * @param bestMove Best move found so far or -1.
+     * @param rating Rating of the best move from the view of the AI.
+     * @param finished Whether the search has finished.
+     */
+    public SearchProgressEvent( ConnectFourAi source, int depth, long nodes,
+                                long elapsedTime, int bestMove, int rating,
+                                boolean finished )
+    {
+        super( source );
+        setDepth( depth );
+        setNodes( nodes );
+        setElapsedTime( elapsedTime );
+        setBestMove( bestMove );
+        setRating( rating );
+        setFinished( finished );
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Advanced Getters
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns the number of nodes visited per second.
+     */
+    public long getNodesPerSecond()
+    {
+        return (getElapsedTime() > 0) ? 1000 * getNodes() / getElapsedTime()
+                                      : 0;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Simple Getters & Setters
+    ////////////////////////////////////////////////////////////////////////////
+    protected void setDepth( int depth )
+    {
+        this.depth = depth;
+    }
+
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    protected void setNodes( long nodes )
+    {
+        this.nodes = nodes;
+    }
+
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    protected void setElapsedTime( long elapsedTime )
+    {
+        this.elapsedTime = elapsedTime;
+    }
+
+    public long getElapsedTime()
+    {
+        return elapsedTime;
+    }
+
+    protected void setBestMove( int bestMove )
+    {
+        this.bestMove = bestMove;
+    }
+
+    public int getBestMove()
+    {
+        return bestMove;
+    }
+
+    protected void setRating( int rating )
+    {
+        this.rating = rating;
+    }
+
+    public int getRating()
+    {
+        return rating;
+    }
+
+    protected void setFinished( boolean finished )
+    {
+        this.finished = finished;
+    }
+
+    public boolean isFinished()
+    {
+        return finished;
+    }
+}
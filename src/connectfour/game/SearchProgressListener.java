@@ -0,0 +1,36 @@
+/* ConnectFour
+ * File: SearchProgressListener.java
+ * Creation: 19.10.2026 16:24:09
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+/**
+ * Listener for the {@link SearchProgressEvent SearchProgressEvent}.
+ */
+public interface SearchProgressListener
+{
+    /**
+     * Called regularly while the AI searches and once when the search has
+     * finished. The method is called in the thread of the search and should
+     * return quickly.
+     */
+    public abstract void searchProgress( SearchProgressEvent e );
+}
@@ -0,0 +1,304 @@
+/* ConnectFour
+ * File: ThreatAnalyzer.java
+ * Creation: 19.10.2026 14:12:36
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import java.util.Arrays;
+
+import connectfour.game.IConnectFour.Players;
+
+/**
+ * Finds the threats of both players in a position. A threat is an empty field
+ * which would complete a line of winLength discs if the player dropped a disc
+ * there. The threats are computed from the bitboards of {@link
+ * LocalConnectFour LocalConnectFour} by shifting and combining them for every
+ * direction and every position of the empty field within a line.
+ * <p>
+ * Threats which can be played immediately decide the game. The other threats
+ * are rated by the row they lie in: The first player profits from threats in
+ * odd rows (counted from one at the bottom) and the second player from threats
+ * in even rows, because at the end of the game the first player can claim
+ * the odd and the second player the even fields.
+ */
+public class ThreatAnalyzer
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Rating of a threat in a row which is unfavorable for its owner. */
+    private final static int threatRating = 4;
+    
+    /** Rating of a threat in a row which is favorable for its owner. */
+    private final static int goodThreatRating = 12;
+    
+    /** Size of the game grid. */
+    private final int rows, columns;
+    
+    /** Discs needed in a row to win. */
+    private final int winLength;
+    
+    /** Number of bits per column in the bitboards. */
+    private final int columnStride;
+    
+    /**
+     * Bit offsets between neighboring fields of a column, a row, a rising and
+     * a falling diagonal.
+     */
+    private final int[] directions;
+    
+    /** Bits of all fields of the grid. */
+    private final long[] gridMask;
+    
+    /**
+     * Threats of the players found by the last {@link
+     * #analyze(LocalConnectFour) analysis}, indexed by the player ordinal.
+     */
+    private final long[][] threats;
+    
+    /**
+     * Scratch bitboards. up[m] and down[m] are the fields followed by m own
+     * discs in positive and negative direction. If the bitboards fit into a
+     * single word, up[0][m] and down[0][m] are used instead.
+     */
+    private final long[][] up, down;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param rows Number of rows of the game's grid.
+     * @param columns Number of columns of the game's grid.
+     * @param winLength Discs needed in a row to win.
+     */
+    public ThreatAnalyzer( int rows, int columns, int winLength )
+    {
+        this.rows = rows;
+        this.columns = columns;
+        this.winLength = winLength;
+        columnStride = rows + 1;
+        directions = new int[] { 1, columnStride, columnStride + 1,
+                                 columnStride - 1 };
+        
+        final int words = (columns * columnStride + 63) >>> 6;
+        gridMask = new long[words];
+        for( int column = 0; column < columns; column++ )
+        {
+            for( int row = 0; row < rows; row++ )
+            {
+                final int bit = column * columnStride + row;
+                gridMask[bit >>> 6] |= 1L << bit;
+            }
+        }
+        threats = new long[2][words];
+        if( words == 1 )
+        {
+            up = new long[1][winLength];
+            down = new long[1][winLength];
+        }
+        else
+        {
+            up = new long[winLength][words];
+            down = new long[winLength][words];
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param game A game.
+     * @return Returns whether the analyzer can be used for the game.
+     */
+    public boolean fits( LocalConnectFour game )
+    {
+        return game.getRows() == rows && game.getColumns() == columns
+               && game.getWinLength() == winLength;
+    }
+    
+    /**
+     * Finds the threats of both players in the current position of a game.
+     * For every direction the fields followed by m own discs in positive and
+     * negative direction are determined for all m < winLength. A field is a
+     * threat if the discs in both directions add up to winLength - 1.
+     * @param game The game. It has to {@link #fits(LocalConnectFour) fit}.
+     */
+    public void analyze( LocalConnectFour game )
+    {
+        final long[][] discs = game.discs;
+        if( gridMask.length == 1 )
+        {
+            analyzeWord( discs );
+            return;
+        }
+        
+        for( int p = 0; p < 2; p++ )
+        {
+            final long[] own = discs[p];
+            final long[] found = threats[p];
+            Arrays.fill( found, 0 );
+            for( int d = 0; d < directions.length; d++ )
+            {
+                Arrays.fill( up[0], -1L );
+                Arrays.fill( down[0], -1L );
+                for( int m = 1; m < winLength; m++ )
+                {
+                    shift( own, m * directions[d], up[m] );
+                    shift( own, -m * directions[d], down[m] );
+                    for( int w = 0; w < found.length; w++ )
+                    {
+                        up[m][w] &= up[m - 1][w];
+                        down[m][w] &= down[m - 1][w];
+                    }
+                }
+                for( int m = 0; m < winLength; m++ )
+                {
+                    final long[] a = up[m], b = down[winLength - 1 - m];
+                    for( int w = 0; w < found.length; w++ )
+                        found[w] |= a[w] & b[w];
+                }
+            }
+            for( int w = 0; w < found.length; w++ )
+                found[w] &= gridMask[w] & ~(discs[0][w] | discs[1][w]);
+        }
+    }
+    
+    /**
+     * Does the same as {@link #analyze(LocalConnectFour) analyze()} for
+     * grids whose bitboards fit into a single word.
+     * @param discs Bitboards of the players.
+     */
+    private void analyzeWord( long[][] discs )
+    {
+        final long[] upWord = up[0], downWord = down[0];
+        for( int p = 0; p < 2; p++ )
+        {
+            final long own = discs[p][0];
+            long found = 0;
+            for( int d = 0; d < directions.length; d++ )
+            {
+                final int direction = directions[d];
+                upWord[0] = -1L;
+                downWord[0] = -1L;
+                for( int m = 1; m < winLength; m++ )
+                {
+                    final int offset = m * direction;
+                    upWord[m] = upWord[m - 1]
+                                & ((offset < 64) ? own >>> offset : 0);
+                    downWord[m] = downWord[m - 1]
+                                  & ((offset < 64) ? own << offset : 0);
+                }
+                for( int m = 0; m < winLength; m++ )
+                    found |= upWord[m] & downWord[winLength - 1 - m];
+            }
+            threats[p][0] = found & gridMask[0] & ~(discs[0][0] | discs[1][0]);
+        }
+    }
+    
+    /**
+     * Shifts a bitboard so that bit i of the result is bit i + offset of the
+     * source. Bits outside of the bitboard are zero.
+     * @param src Source bitboard.
+     * @param offset Offset of the bits.
+     * @param dst Destination bitboard with the same length as the source.
+     */
+    private static void shift( long[] src, int offset, long[] dst )
+    {
+        final int words = src.length;
+        if( words == 1 )
+        {
+            if( offset >= 64 || offset <= -64 )
+                dst[0] = 0;
+            else
+                dst[0] = (offset >= 0) ? src[0] >>> offset
+                                       : src[0] << -offset;
+            return;
+        }
+        
+        for( int w = 0; w < words; w++ )
+        {
+            /* Bit b of dst[w] is bit 64 * w + b + offset of src. */
+            final int start = 64 * w + offset;
+            final int srcWord = start >> 6;
+            final int bit = start & 63;
+            long value = 0;
+            if( srcWord >= 0 && srcWord < words )
+                value = src[srcWord] >>> bit;
+            if( bit != 0 && srcWord + 1 >= 0 && srcWord + 1 < words )
+                value |= src[srcWord + 1] << (64 - bit);
+            dst[w] = value;
+        }
+    }
+    
+    /**
+     * @param player A player.
+     * @param row Row of a field.
+     * @param column Column of a field.
+     * @return Returns whether the field was a threat of the player in the
+     *     last {@link #analyze(LocalConnectFour) analyzed} position.
+     */
+    public boolean isThreat( Players player, int row, int column )
+    {
+        if( row >= rows )
+            return false;
+        final int bit = column * columnStride + row;
+        return (threats[player.ordinal()][bit >>> 6] & (1L << bit)) != 0;
+    }
+    
+    /**
+     * Rates the threats of the last {@link #analyze(LocalConnectFour)
+     * analyzed} position. A threat directly above a threat of the other
+     * player is not rated, because the other player would win first.
+     * @param game The analyzed game.
+     * @return The rating. Positive ratings are good for the first player.
+     */
+    public int getRating( LocalConnectFour game )
+    {
+        /* The player who began the game profits from threats in odd rows,
+         * the other player from threats in even rows.
+         */
+        final int startPlayer = game.getStartPlayer().ordinal();
+        int rating = 0;
+        for( int p = 0; p < 2; p++ )
+        {
+            final long[] own = threats[p], other = threats[1 - p];
+            final int sign = (p == 0) ? 1 : -1;
+            for( int w = 0; w < own.length; w++ )
+            {
+                long bits = own[w];
+                while( bits != 0 )
+                {
+                    final int bit = 64 * w + Long.numberOfTrailingZeros( bits );
+                    bits &= bits - 1;
+                    final int row = bit % columnStride;
+                    if( row > 0 && (other[(bit - 1) >>> 6]
+                                    & (1L << (bit - 1))) != 0 )
+                        continue;
+                    
+                    /* Row 0 is the first row counted from one. */
+                    rating += sign * ((row % 2 == (p ^ startPlayer))
+                                      ? goodThreatRating : threatRating);
+                }
+            }
+        }
+        return rating;
+    }
+}
@@ -0,0 +1,378 @@
+/* ConnectFour
+ * File: TranspositionTable.java
+ * Creation: 18.10.2026 09:47:03
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size cache for search results of positions identified by their
+ * {@link LocalConnectFour#getHash() Zobrist hash}. The table consists of two
+ * primitive arrays and does not allocate any memory after construction.
+ * <p>
+ * The entries are organized in buckets of two. The first entry of a bucket is
+ * only replaced by results of searches at least as deep or if it stems from an
+ * older search, the second entry is always replaced. Each entry is stored as
+ * the data word and the hash XORed with the data word. Thus an entry torn by
+ * concurrent writes is detected as a miss and the table can be shared between
+ * threads without locking. The table itself keeps no statistics. Each
+ * searching thread can count its lookups and stores in its own {@link
+ * Statistics Statistics} object, which are merged afterwards.
+ */
+public class TranspositionTable
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Enumerations
+    ////////////////////////////////////////////////////////////////////////////
+    /** Specifies how the stored score relates to the real score. */
+    public enum Bound
+    {
+        /** The stored score is the exact score. */
+        EXACT,
+        /** The real score is at least the stored score. */
+        LOWER,
+        /** The real score is at most the stored score. */
+        UPPER
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Statistics of the lookups and stores of one searching thread. It must
+     * not be used by several threads at the same time.
+     */
+    public static class Statistics
+    {
+        /** Number of lookups. */
+        private long probes = 0;
+        
+        /** Number of lookups which found an entry. */
+        private long hits = 0;
+        
+        /** Number of stored entries. */
+        private long stores = 0;
+        
+        /** Number of stores which replaced an entry of another position. */
+        private long replacements = 0;
+        
+        /**
+         * Adds the counts of other statistics to these.
+         * @param other The other statistics.
+         */
+        public void add( Statistics other )
+        {
+            probes += other.probes;
+            hits += other.hits;
+            stores += other.stores;
+            replacements += other.replacements;
+        }
+        
+        /** Resets all counters. */
+        public void reset()
+        {
+            probes = hits = stores = replacements = 0;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "TranspositionTable.Statistics[probes=" + getProbes()
+                   + ", hits=" + getHits() + ", misses=" + getMisses()
+                   + ", hitRate=" + getHitRate() + ", stores=" + getStores()
+                   + ", replacements=" + getReplacements() + "]";
+        }
+        
+        public long getProbes()
+        {
+            return probes;
+        }
+        
+        public long getHits()
+        {
+            return hits;
+        }
+        
+        public long getMisses()
+        {
+            return probes - hits;
+        }
+        
+        /** @return Returns the fraction of lookups which found an entry. */
+        public double getHitRate()
+        {
+            return (probes > 0) ? (double) hits / probes : 0;
+        }
+        
+        public long getStores()
+        {
+            return stores;
+        }
+        
+        public long getReplacements()
+        {
+            return replacements;
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Number of bytes needed per entry. */
+    private final static int bytesPerEntry = 16;
+    
+    /** Standard memory budget in bytes. */
+    private final static long stdMemoryBudget = 16L << 20;
+    
+    /** Cached values of {@link Bound Bound}. */
+    private final static Bound[] bounds = Bound.values();
+    
+    /* Layout of the data word (from least to most significant bits):
+     * 32 bits score, 8 bits depth, 2 bits bound (ordinal + 1, so that no valid
+     * data word is zero), 6 bits move (column + 1), 8 bits generation.
+     */
+    private final static int depthShift = 32, boundShift = 40, moveShift = 42,
+                             generationShift = 48;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Hashes of the entries XORed with the data words. */
+    private final long[] checks;
+    
+    /** Data words of the entries. */
+    private final long[] data;
+    
+    /** Mask to get the bucket index from a hash. */
+    private final int mask;
+    
+    /**
+     * Counter of the searches used to age entries. Only the lowest 8 bits
+     * are stored in the entries. It is atomic, because the searches of
+     * several games may share the table.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Shorthand for {@link #TranspositionTable(long)
+     * TranspositionTable(getStdMemoryBudget())}.
+     */
+    public TranspositionTable()
+    {
+        this( getStdMemoryBudget() );
+    }
+    
+    /**
+     * @param memoryBudget Maximum number of bytes to use for the entries. The
+     *     number of entries will be the largest power of two fitting into this
+     *     budget (but at least two).
+     */
+    public TranspositionTable( long memoryBudget )
+    {
+        long entries = Long.highestOneBit(
+            Math.max( 2, memoryBudget / bytesPerEntry ) );
+        if( entries > (1 << 30) )
+            entries = 1 << 30;
+        checks = new long[(int) entries];
+        data = new long[(int) entries];
+        mask = (int) entries - 2;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param entry Data word returned by {@link #probe(long) probe()}.
+     * @return Returns the stored score.
+     */
+    public static int getScore( long entry )
+    {
+        return (int) entry;
+    }
+    
+    /**
+     * @param entry Data word returned by {@link #probe(long) probe()}.
+     * @return Returns the recursion depth of the search which produced the
+     *     entry.
+     */
+    public static int getDepth( long entry )
+    {
+        return (int) (entry >>> depthShift) & 0xff;
+    }
+    
+    /**
+     * @param entry Data word returned by {@link #probe(long) probe()}.
+     * @return Returns how the stored score relates to the real score.
+     */
+    public static Bound getBound( long entry )
+    {
+        return bounds[((int) (entry >>> boundShift) & 0x3) - 1];
+    }
+    
+    /**
+     * @param entry Data word returned by {@link #probe(long) probe()}.
+     * @return Returns the column of the best move or -1 if none was stored.
+     */
+    public static int getMove( long entry )
+    {
+        return ((int) (entry >>> moveShift) & 0x3f) - 1;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /** Removes all entries. */
+    public void clear()
+    {
+        Arrays.fill( checks, 0 );
+        Arrays.fill( data, 0 );
+        generation.set( 0 );
+    }
+    
+    /**
+     * Marks the beginning of a new search. Entries of older searches will be
+     * replaced preferentially.
+     */
+    public void newSearch()
+    {
+        generation.incrementAndGet();
+    }
+    
+    /**
+     * Shorthand for {@link #probe(long, Statistics) probe(hash, null)}.
+     */
+    public long probe( long hash )
+    {
+        return probe( hash, null );
+    }
+    
+    /**
+     * Looks up a position.
+     * @param hash Hash of the position.
+     * @param statistics Statistics of the calling thread to count the lookup
+     *     in or null.
+     * @return Returns the data word of the entry, which can be decoded with
+     *     the static getters of this class, or 0 if there is no entry for the
+     *     position.
+     */
+    public long probe( long hash, Statistics statistics )
+    {
+        if( statistics != null )
+            statistics.probes++;
+        final int index = (int) hash & mask;
+        for( int i = index; i < index + 2; i++ )
+        {
+            final long entry = data[i];
+            if( entry != 0 && (checks[i] ^ entry) == hash )
+            {
+                if( statistics != null )
+                    statistics.hits++;
+                return entry;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Shorthand for {@link #store(long, int, Bound, int, int, Statistics)
+     * store(hash, depth, bound, score, move, null)}.
+     */
+    public void store( long hash, int depth, Bound bound, int score, int move )
+    {
+        store( hash, depth, bound, score, move, null );
+    }
+    
+    /**
+     * Stores a search result.
+     * @param hash Hash of the position.
+     * @param depth Recursion depth of the search. Values above 255 are
+     *     stored as 255.
+     * @param bound How the score relates to the real score.
+     * @param score Score of the position.
+     * @param move Column of the best move or -1 if unknown.
+     * @param statistics Statistics of the calling thread to count the store
+     *     in or null.
+     */
+    public void store( long hash, int depth, Bound bound, int score, int move,
+                       Statistics statistics )
+    {
+        final int currentGeneration = generation.get() & 0xff;
+        final long entry = (score & 0xffffffffL)
+            | ((long) Math.min( Math.max( depth, 0 ), 0xff ) << depthShift)
+            | ((long) (bound.ordinal() + 1) << boundShift)
+            | ((long) ((move + 1) & 0x3f) << moveShift)
+            | ((long) currentGeneration << generationShift);
+        final int index = (int) hash & mask;
+        
+        int slot;
+        if( data[index] == 0 || (checks[index] ^ data[index]) == hash )
+            slot = index;
+        else if( (checks[index + 1] ^ data[index + 1]) == hash )
+            slot = index + 1;
+        else if( depth >= getDepth( data[index] )
+                 || (int) (data[index] >>> generationShift)
+                    != currentGeneration )
+            slot = index;
+        else
+            slot = index + 1;
+        
+        if( statistics != null )
+        {
+            statistics.stores++;
+            if( data[slot] != 0 && (checks[slot] ^ data[slot]) != hash )
+                statistics.replacements++;
+        }
+        data[slot] = entry;
+        checks[slot] = hash ^ entry;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "TranspositionTable[entries=" + getEntries() + ", generation="
+               + (generation.get() & 0xff) + "]";
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Simple Getters & Setters
+    ////////////////////////////////////////////////////////////////////////////
+    /** @return Returns the number of entries the table can hold. */
+    public int getEntries()
+    {
+        return data.length;
+    }
+    
+    /** @return Returns the number of bytes used by the entries. */
+    public long getMemoryUsage()
+    {
+        return (long) getEntries() * bytesPerEntry;
+    }
+    
+    public static long getStdMemoryBudget()
+    {
+        return stdMemoryBudget;
+    }
+}
@@ -0,0 +1,243 @@
+/* ConnectFour
+ * File: WindowEvaluator.java
+ * Creation: 18.10.2026 14:02:16
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import java.util.Arrays;
+
+import connectfour.game.IConnectFour.Players;
+
+/**
+ * Rates Connect Four positions by the windows a player can still use to win.
+ * A window is a line of winLength fields in a row, column or diagonal. Every
+ * window containing only discs of one player counts the square of the number
+ * of these discs for this player. Windows containing discs of both players do
+ * not count.
+ * <p>
+ * The disc counts of all windows and the resulting rating are updated
+ * incrementally when a disc is {@link #add(int, int, Players) added} or
+ * {@link #remove(int, int, Players) removed}. This needs time proportional
+ * to the number of windows through the changed field, so that the rating of
+ * a position is available in constant time.
+ */
+public class WindowEvaluator
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Size of the game grid. */
+    private final int rows, columns;
+    
+    /** Discs needed in a row to win. */
+    private final int winLength;
+    
+    /**
+     * Indices of the windows containing a field. The windows of the field in
+     * row i and column j are stored from index fieldOffsets[i * columns + j]
+     * up to (excluding) fieldOffsets[i * columns + j + 1] in
+     * {@link #fieldWindows fieldWindows}.
+     */
+    private final int[] fieldOffsets;
+    
+    /** @see #fieldOffsets */
+    private final int[] fieldWindows;
+    
+    /**
+     * Number of discs of each player in each window. The count of the player
+     * with the ordinal p in window w is stored at index 2 * w + p.
+     */
+    private final int[] counts;
+    
+    /** Rating of a window by the number of discs of one player in it. */
+    private final int[] weights;
+    
+    /** Current rating. Positive ratings are good for the first player. */
+    private int rating = 0;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param rows Number of rows of the game's grid.
+     * @param columns Number of columns of the game's grid.
+     * @param winLength How many discs a player must get in a row to win.
+     */
+    public WindowEvaluator( int rows, int columns, int winLength )
+    {
+        this.rows = rows;
+        this.columns = columns;
+        this.winLength = winLength;
+        
+        weights = new int[winLength + 1];
+        for( int i = 0; i <= winLength; i++ )
+            weights[i] = i * i;
+        
+        /* Collect the fields of all windows. */
+        final int[] windowFields = new int[4 * rows * columns * winLength];
+        int windows = 0;
+        for( int direction = 0; direction < 4; direction++ )
+        {
+            int dRow, dColumn;
+            switch( direction )
+            {
+                case 0:  dRow = 0; dColumn =  1; break; // Row
+                case 1:  dRow = 1; dColumn =  0; break; // Column
+                case 2:  dRow = 1; dColumn = -1; break; // Diagonal down
+                default: dRow = 1; dColumn =  1; break; // Diagonal up
+            }
+            for( int row = 0; row + (winLength - 1) * dRow < rows; row++ )
+            {
+                for( int column = 0; column < columns; column++ )
+                {
+                    final int endColumn = column + (winLength - 1) * dColumn;
+                    if( endColumn < 0 || endColumn >= columns )
+                        continue;
+                    for( int k = 0; k < winLength; k++ )
+                        windowFields[windows * winLength + k] =
+                            (row + k * dRow) * columns + column + k * dColumn;
+                    windows++;
+                }
+            }
+        }
+        
+        /* Invert the mapping to get the windows of each field. */
+        fieldOffsets = new int[rows * columns + 1];
+        for( int i = 0; i < windows * winLength; i++ )
+            fieldOffsets[windowFields[i] + 1]++;
+        for( int i = 0; i < rows * columns; i++ )
+            fieldOffsets[i + 1] += fieldOffsets[i];
+        fieldWindows = new int[windows * winLength];
+        final int[] filled = new int[rows * columns];
+        for( int i = 0; i < windows * winLength; i++ )
+        {
+            final int field = windowFields[i];
+            fieldWindows[fieldOffsets[field] + filled[field]++] =
+                i / winLength;
+        }
+        
+        counts = new int[2 * windows];
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Adds a disc.
+     * @param row Row of the disc.
+     * @param column Column of the disc.
+     * @param player Player owning the disc.
+     */
+    public void add( int row, int column, Players player )
+    {
+        update( row, column, player.ordinal(), 1 );
+    }
+    
+    /**
+     * Checks whether this evaluator can be used for a game.
+     * @param game Game to check.
+     * @return true if the evaluator has been created for the grid size and
+     *     win length of the game.
+     */
+    public boolean fits( LocalConnectFour game )
+    {
+        return game.getRows() == rows && game.getColumns() == columns
+               && game.getWinLength() == winLength;
+    }
+    
+    /**
+     * Removes a disc.
+     * @param row Row of the disc.
+     * @param column Column of the disc.
+     * @param player Player owning the disc.
+     */
+    public void remove( int row, int column, Players player )
+    {
+        update( row, column, player.ordinal(), -1 );
+    }
+    
+    /**
+     * Sets the state of the evaluator to the current position of a game.
+     * @param game The game. It has to {@link #fits(LocalConnectFour) fit} to
+     *     this evaluator.
+     */
+    public void reset( LocalConnectFour game )
+    {
+        Arrays.fill( counts, 0 );
+        rating = 0;
+        for( int row = 0; row < rows; row++ )
+        {
+            for( int column = 0; column < columns; column++ )
+            {
+                Players player = game.getField( row, column );
+                if( player != Players.UNDEFINED )
+                    add( row, column, player );
+            }
+        }
+    }
+    
+    /**
+     * Changes the number of discs of a player in all windows of a field and
+     * updates the rating.
+     * @param row Row of the field.
+     * @param column Column of the field.
+     * @param player Ordinal of the player.
+     * @param delta Change of the number of discs.
+     */
+    private void update( int row, int column, int player, int delta )
+    {
+        final int field = row * columns + column;
+        final int end = fieldOffsets[field + 1];
+        for( int i = fieldOffsets[field]; i < end; i++ )
+        {
+            final int index = 2 * fieldWindows[i];
+            rating -= rateWindow( counts[index], counts[index + 1] );
+            counts[index + player] += delta;
+            rating += rateWindow( counts[index], counts[index + 1] );
+        }
+    }
+    
+    /**
+     * Rates a window.
+     * @param first Number of discs of the first player in the window.
+     * @param second Number of discs of the second player in the window.
+     * @return Rating of the window. Positive ratings are good for the first
+     *     player.
+     */
+    private int rateWindow( int first, int second )
+    {
+        if( first > 0 && second > 0 )
+            return 0;
+        return weights[first] - weights[second];
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Simple Getters & Setters
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns the rating of the current position. Positive ratings are
+     *     good for the first player.
+     */
+    public int getRating()
+    {
+        return rating;
+    }
+}
@@ -0,0 +1,148 @@
+/* ConnectFour
+ * File: XorShiftRandom.java
+ * Creation: 20.10.2026 11:02:17
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fast pseudo random number generator (xorshift64*) for the searches of
+ * {@link ConnectFourAi ConnectFourAi}. Unlike {@link Math#random()} it is not
+ * shared between threads and not synchronized, so every search needs its own
+ * instance. The sequence of numbers is determined by the seed, which allows
+ * to replay a search.
+ */
+public final class XorShiftRandom
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Source for seeds of generators which are not seeded explicitly. */
+    private final static AtomicLong seedUniquifier =
+        new AtomicLong( 0x2545f4914f6cdd1dL );
+    
+    /** Seed passed to {@link #setSeed(long) setSeed()}. */
+    private long seed;
+    
+    /** Current state. Never 0. */
+    private long state;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Creates a generator with a seed which differs from the seeds of the
+     * other generators created by this constructor.
+     */
+    public XorShiftRandom()
+    {
+        this( newSeed() );
+    }
+    
+    /**
+     * @param seed Seed of the generator.
+     */
+    public XorShiftRandom( long seed )
+    {
+        setSeed( seed );
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns a new seed which differs from the previously returned
+     *     seeds.
+     */
+    public static long newSeed()
+    {
+        return mix( seedUniquifier.addAndGet( 0x9e3779b97f4a7c15L )
+                    ^ System.nanoTime() );
+    }
+    
+    /**
+     * Scrambles the bits of a number (SplitMix64 finalizer).
+     * @param x The number.
+     * @return The scrambled number.
+     */
+    private static long mix( long x )
+    {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @return Returns the next pseudo random number. All 64 bit values except
+     *     of 0 are equally likely.
+     */
+    public long nextLong()
+    {
+        long x = state;
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state = x;
+        return x * 0x2545f4914f6cdd1dL;
+    }
+    
+    /**
+     * @return Returns a pseudo random number in the range [0, 1).
+     */
+    public double nextDouble()
+    {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+    
+    /**
+     * @param n Upper bound. Has to be positive.
+     * @return Returns a pseudo random number in the range [0, n).
+     */
+    public int nextInt( int n )
+    {
+        return (int) (((nextLong() >>> 33) * n) >>> 31);
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Simple Getters & Setters
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Resets the generator. The same seed results in the same sequence of
+     * numbers.
+     * @param seed The seed.
+     */
+    public void setSeed( long seed )
+    {
+        this.seed = seed;
+        state = mix( seed );
+        if( state == 0 )
+            state = 0x9e3779b97f4a7c15L;
+    }
+    
+    public long getSeed()
+    {
+        return seed;
+    }
+}
@@ -0,0 +1,142 @@
+/* ConnectFour
+ * File: ZobristKeys.java
+ * Creation: 18.10.2026 09:12:41
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.game;
+
+/**
+ * Provides the random keys for Zobrist hashing of Connect Four positions. The
+ * hash of a position is the XOR of the keys of all occupied fields (and the
+ * {@link #getSideKey() side key} if {@link IConnectFour.Players
+ * Players.SECOND} has to move). Because of the XOR a hash can be updated
+ * incrementally when a disc is dropped or removed.
+ * The keys are generated deterministically, so hashes are the same in every
+ * run of the program and can be stored persistently.
+ */
+final class ZobristKeys
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Seed from which all keys are derived. */
+    private final static long seed = 0x436f6e6e65637434L;
+    
+    /** Key which is XORed into the hash if the second player has to move. */
+    private final static long sideKey = mix( seed );
+    
+    /**
+     * Keys for the fields. The key of a disc of the player with the ordinal p
+     * at bit index i of the bitboard is stored at index 2 * i + p. The array
+     * is replaced by a larger one if more keys are needed.
+     */
+    private static volatile long[] keys = new long[0];
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    private ZobristKeys()
+    {
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the keys for bitboards with at least the passed number of bits.
+     * The key of a disc of the player with the ordinal p at bit index i is
+     * stored at index 2 * i + p. The returned array must not be modified.
+     * @param bits Number of bits in the bitboard.
+     * @return Array with the keys.
+     */
+    static long[] getKeys( int bits )
+    {
+        long[] current = keys;
+        if( current.length >= 2 * bits )
+            return current;
+        synchronized( ZobristKeys.class )
+        {
+            current = keys;
+            if( current.length < 2 * bits )
+            {
+                long[] grown = new long[2 * bits];
+                for( int i = 0; i < grown.length; i++ )
+                    grown[i] = mix( seed + (i + 1) * 0x9e3779b97f4a7c15L );
+                keys = current = grown;
+            }
+            return current;
+        }
+    }
+    
+    /** @return Returns the key for the second player having to move. */
+    static long getSideKey()
+    {
+        return sideKey;
+    }
+    
+    /**
+     * Returns a key identifying the game settings. Combining it with the hash
+     * of a position allows to store positions of differently configured games
+     * in the same transposition table.
+     * @param rows Number of rows.
+     * @param columns Number of columns.
+     * @param winLength Number of discs in a row needed to win.
+     * @param maxTurns Maximum number of turns or -1.
+     * @return The key.
+     */
+    static long getSettingsKey( int rows, int columns, int winLength,
+                                int maxTurns )
+    {
+        long key = mix( seed ^ rows );
+        key = mix( key ^ columns );
+        key = mix( key ^ winLength );
+        return mix( key ^ maxTurns );
+    }
+    
+    /**
+     * Returns a key identifying the game settings and further settings which
+     * change the stored scores, like the evaluation of an AI.
+     * @param rows Number of rows.
+     * @param columns Number of columns.
+     * @param winLength Number of discs in a row needed to win.
+     * @param maxTurns Maximum number of turns or -1.
+     * @param variant Number identifying the further settings.
+     * @return The key.
+     */
+    static long getSettingsKey( int rows, int columns, int winLength,
+                                int maxTurns, int variant )
+    {
+        return mix( getSettingsKey( rows, columns, winLength, maxTurns )
+                    ^ variant );
+    }
+    
+    /**
+     * Scrambles the bits of a number (SplitMix64 finalizer). Successive
+     * inputs produce unrelated outputs.
+     * @param x Number to scramble.
+     * @return Scrambled number.
+     */
+    private static long mix( long x )
+    {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+}
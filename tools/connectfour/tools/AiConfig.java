@@ -0,0 +1,170 @@
+/* ConnectFour
+ * File: AiConfig.java
+ * Creation: 22.10.2026 10:12:09
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.tools;
+
+import connectfour.game.ConnectFourAi;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.TranspositionTable;
+
+/**
+ * Settings of a {@link ConnectFourAi ConnectFourAi} used by the command line
+ * tools which let AIs play against each other. The settings are given as a
+ * comma separated list of key=value pairs, e.g.
+ * <code>depth=7,difficulty=0.9,time=500</code>. Known keys are:
+ * <ul>
+ * <li><code>name</code>: Name shown in the results.</li>
+ * <li><code>depth</code>: Recursion depth (default 6).</li>
+ * <li><code>difficulty</code>: Difficulty between 0 and 1 (default 1).</li>
+ * <li><code>nodes</code>: Node budget per move (default 0, unlimited).</li>
+ * <li><code>time</code>: Time budget per move in milliseconds (default 0,
+ * unlimited).</li>
+ * <li><code>endgame</code>: Endgame threshold (default 20, 0 disables the
+ * endgame solver).</li>
+ * <li><code>threats</code>: Whether to use threat analysis (default
+ * true).</li>
+ * <li><code>algorithm</code>: A {@link ConnectFourAi.Algorithm search
+ * algorithm} (default ALPHA_BETA).</li>
+ * <li><code>evaluation</code>: An {@link ConnectFourAi.Evaluation evaluation}
+ * (default RUNS).</li>
+ * </ul>
+ */
+public class AiConfig
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Name shown in the results. */
+    private String name;
+    
+    private int depth = 6;
+    private double difficulty = 1;
+    private long nodeBudget = 0;
+    private long timeBudget = 0;
+    private int endgameThreshold = 20;
+    private boolean threatAnalysis = true;
+    private ConnectFourAi.Algorithm algorithm =
+        ConnectFourAi.Algorithm.ALPHA_BETA;
+    private ConnectFourAi.Evaluation evaluation =
+        ConnectFourAi.Evaluation.RUNS;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param spec Comma separated list of key=value pairs. May be empty to
+     *     use the defaults.
+     * @throws IllegalArgumentException If the list contains an unknown key
+     *     or an invalid value.
+     */
+    public AiConfig( String spec )
+    {
+        for( String pair : spec.split( "," ) )
+        {
+            if( pair.trim().length() == 0 )
+                continue;
+            int separator = pair.indexOf( '=' );
+            if( separator < 0 )
+                throw new IllegalArgumentException( "Missing value: " + pair );
+            String key = pair.substring( 0, separator ).trim();
+            String value = pair.substring( separator + 1 ).trim();
+            if( key.equals( "name" ) )
+                name = value;
+            else if( key.equals( "depth" ) )
+                depth = Integer.parseInt( value );
+            else if( key.equals( "difficulty" ) )
+                difficulty = Double.parseDouble( value );
+            else if( key.equals( "nodes" ) )
+                nodeBudget = Long.parseLong( value );
+            else if( key.equals( "time" ) )
+                timeBudget = Long.parseLong( value );
+            else if( key.equals( "endgame" ) )
+                endgameThreshold = Integer.parseInt( value );
+            else if( key.equals( "threats" ) )
+                threatAnalysis = Boolean.parseBoolean( value );
+            else if( key.equals( "algorithm" ) )
+                algorithm = ConnectFourAi.Algorithm.valueOf(
+                    value.toUpperCase() );
+            else if( key.equals( "evaluation" ) )
+                evaluation = ConnectFourAi.Evaluation.valueOf(
+                    value.toUpperCase() );
+            else
+                throw new IllegalArgumentException( "Unknown key: " + key );
+        }
+        if( name == null )
+            name = spec.trim().length() > 0 ? spec.trim() : "default";
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Creates an AI with these settings.
+     * @param game The game in which the AI plays.
+     * @param transpositionTable Transposition table of the AI. It is cleared.
+     * @param seed Seed for the random number generator of the AI.
+     * @return The AI.
+     */
+    public ConnectFourAi createAi( LocalConnectFour game,
+                                   TranspositionTable transpositionTable,
+                                   long seed )
+    {
+        transpositionTable.clear();
+        ConnectFourAi ai = new ConnectFourAi( game, depth, difficulty,
+                                              transpositionTable );
+        ai.setNodeBudget( nodeBudget );
+        ai.setTimeBudget( timeBudget );
+        ai.setEndgameThreshold( endgameThreshold );
+        ai.setThreatAnalysis( threatAnalysis );
+        ai.setAlgorithm( algorithm );
+        ai.setEvaluation( evaluation );
+        ai.setSeed( seed );
+        return ai;
+    }
+    
+    /**
+     * @return Returns all settings including the default values as comma
+     *     separated list of key=value pairs, which can be passed to the
+     *     {@link #AiConfig(String) constructor}.
+     */
+    public String getSpec()
+    {
+        return "name=" + name + ",depth=" + depth + ",difficulty=" + difficulty
+               + ",nodes=" + nodeBudget + ",time=" + timeBudget + ",endgame="
+               + endgameThreshold + ",threats=" + threatAnalysis
+               + ",algorithm=" + algorithm + ",evaluation=" + evaluation;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Simple Getters & Setters
+    ////////////////////////////////////////////////////////////////////////////
+    public String getName()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,147 @@
+/* ConnectFour
+ * File: EvaluatorCheck.java
+ * Creation: 24.10.2026 10:02:36
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.tools;
+
+import connectfour.game.ConnectFourAi;
+import connectfour.game.IConnectFour.Players;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.XorShiftRandom;
+
+/**
+ * Verifies that the incrementally updated rating of {@link
+ * ConnectFourAi.Evaluation#RUNS Evaluation.RUNS} equals {@link
+ * ConnectFourAi#rate(LocalConnectFour) ConnectFourAi.rate()}. Random moves
+ * are done and undone on all grid sizes from 3x3 to 12x12 with all win
+ * lengths, and the ratings are compared after every move and undo.
+ * <p>
+ * Usage: <code>EvaluatorCheck [gamesPerSize [seed]]</code>
+ */
+public class EvaluatorCheck
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ////////////////////////////////////////////////////////////////////////////
+    /** AI giving access to the incremental evaluation. */
+    private static class Evaluator extends ConnectFourAi
+    {
+        public Evaluator( LocalConnectFour game )
+        {
+            super( game, 1, 1, null );
+            setEvaluation( Evaluation.RUNS );
+            setThreatAnalysis( false );
+            setGameCopy( game );
+            resetEvaluator();
+        }
+        
+        /**
+         * Compares the incremental rating with the rating of the whole grid.
+         * @throws IllegalStateException If the ratings differ.
+         */
+        public void check()
+        {
+            if( getGameCopy().isGameFinished() )
+                return;
+            final int expected = rate( getGameCopy() );
+            final int rating = evaluate();
+            if( rating != expected )
+                throw new IllegalStateException( "Rating " + rating
+                    + " instead of " + expected + ", grid "
+                    + getGameCopy().getRows() + "x"
+                    + getGameCopy().getColumns() + ", win length "
+                    + getGameCopy().getWinLength() + ", moves "
+                    + getGameCopy().getMoves() );
+        }
+        
+        /**
+         * Does a move and checks the rating.
+         * @param column Where to drop the disc.
+         * @return true, if successful; false, if move is not valid.
+         */
+        public boolean checkMove( int column )
+        {
+            if( !doSearchMove( column ) )
+                return false;
+            check();
+            return true;
+        }
+        
+        /** Undoes the last move and checks the rating. */
+        public void checkUndo()
+        {
+            undoSearchMove();
+            check();
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Smallest and largest checked number of rows and columns. */
+    private final static int minSize = 3, maxSize = 12;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    public static void main( String[] args )
+    {
+        int games = (args.length > 0) ? Integer.parseInt( args[0] ) : 5;
+        long seed = (args.length > 1) ? Long.parseLong( args[1] ) : 1;
+        XorShiftRandom random = new XorShiftRandom( seed );
+        
+        long checks = 0;
+        for( int rows = minSize; rows <= maxSize; rows++ )
+        {
+            for( int columns = minSize; columns <= maxSize; columns++ )
+            {
+                for( int winLength = 3;
+                     winLength <= Math.max( rows, columns ); winLength++ )
+                {
+                    for( int i = 0; i < games; i++ )
+                    {
+                        LocalConnectFour game = new LocalConnectFour( rows,
+                            columns, winLength, (random.nextInt( 2 ) == 0)
+                                                ? Players.FIRST
+                                                : Players.SECOND );
+                        Evaluator evaluator = new Evaluator( game );
+                        evaluator.check();
+                        
+                        /* Walk randomly through the game tree. */
+                        for( int step = 0; step < 2 * rows * columns; step++ )
+                        {
+                            if( !game.getMoves().isEmpty()
+                                && (game.isGameFinished()
+                                    || random.nextInt( 3 ) == 0) )
+                                evaluator.checkUndo();
+                            else if( !evaluator.checkMove(
+                                         random.nextInt( columns ) ) )
+                                continue;
+                            checks++;
+                        }
+                    }
+                }
+            }
+        }
+        System.out.println( checks + " moves and undos checked, all ratings "
+                            + "equal" );
+    }
+}
@@ -0,0 +1,137 @@
+/* ConnectFour
+ * File: OpeningBookGenerator.java
+ * Creation: 19.10.2026 11:48:09
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import connectfour.game.ConnectFourAi;
+import connectfour.game.IConnectFour.Players;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.OpeningBook;
+import connectfour.game.TranspositionTable;
+
+/**
+ * Generates an {@link OpeningBook opening book} by searching all positions
+ * up to a given number of moves deeply.
+ * <p>
+ * Usage: <code>OpeningBookGenerator file [plies [depth [rows columns
+ * winLength]]]</code>
+ */
+public class OpeningBookGenerator
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Memory budget of the transposition table in bytes. */
+    private final static long memoryBudget = 64L << 20;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Collects all unfinished positions reachable with up to plies moves.
+     * Of positions which are mirror images of each other only one is
+     * collected.
+     * @param game Current position. Will be unchanged after the call.
+     * @param plies Number of moves still to do.
+     * @param seen Canonical hashes of the already collected positions.
+     * @param positions Collected positions.
+     */
+    static void collect( LocalConnectFour game, int plies, HashSet<Long> seen,
+                         ArrayList<LocalConnectFour> positions )
+    {
+        if( game.isGameFinished() || !seen.add( game.getCanonicalHash() ) )
+            return;
+        positions.add( game.clone() );
+        if( plies <= 0 )
+            return;
+        
+        for( int i = 0; i < game.getColumns(); i++ )
+        {
+            if( game.doMove( i ) )
+            {
+                collect( game, plies - 1, seen, positions );
+                game.undoLastMove();
+            }
+        }
+    }
+    
+    public static void main( String[] args ) throws IOException
+    {
+        if( args.length < 1 )
+        {
+            System.err.println( "Usage: OpeningBookGenerator file [plies "
+                                + "[depth [rows columns winLength]]]" );
+            System.exit( 1 );
+        }
+        File file = new File( args[0] );
+        int plies = (args.length > 1) ? Integer.parseInt( args[1] ) : 4;
+        int depth = (args.length > 2) ? Integer.parseInt( args[2] ) : 12;
+        int rows = (args.length > 5) ? Integer.parseInt( args[3] ) : 6;
+        int columns = (args.length > 5) ? Integer.parseInt( args[4] ) : 7;
+        int winLength = (args.length > 5) ? Integer.parseInt( args[5] ) : 4;
+        
+        ArrayList<LocalConnectFour> positions =
+            new ArrayList<LocalConnectFour>();
+        collect( new LocalConnectFour( rows, columns, winLength,
+                                       Players.FIRST ),
+                 plies, new HashSet<Long>(), positions );
+        System.out.println( "Grid " + rows + "x" + columns + ", win length "
+                            + winLength + ", " + positions.size()
+                            + " positions up to " + plies + " moves, depth "
+                            + depth );
+        
+        final int count = positions.size();
+        long[] hashes = new long[count];
+        int[] ratings = new int[count];
+        int[] moves = new int[count];
+        int[] depths = new int[count];
+        TranspositionTable tt = new TranspositionTable( memoryBudget );
+        long start = System.nanoTime();
+        for( int i = 0; i < count; i++ )
+        {
+            LocalConnectFour game = positions.get( i );
+            hashes[i] = game.getStartRelativeHash();
+            final boolean mirrored = game.isStartRelativeMirrored();
+            ConnectFourAi ai = new ConnectFourAi( game, depth, 1, tt );
+            ai.move();
+            moves[i] = game.getMoves().peek();
+            if( mirrored )
+                moves[i] = game.mirrorColumn( moves[i] );
+            ratings[i] = ai.getBestRating();
+            depths[i] = depth;
+            
+            if( (i + 1) % 100 == 0 || i + 1 == count )
+                System.out.println( String.format(
+                    "%d/%d positions, %.1f s", i + 1, count,
+                    (System.nanoTime() - start) / 1e9 ) );
+        }
+        
+        OpeningBook.write( file, rows, columns, winLength, hashes, ratings,
+                           moves, depths, count );
+        System.out.println( "Wrote " + count + " entries to " + file );
+    }
+}
@@ -0,0 +1,482 @@
+/* ConnectFour
+ * File: Perft.java
+ * Creation: 20.10.2026 16:05:11
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.tools;
+
+import java.util.Arrays;
+
+import connectfour.game.IConnectFour.Players;
+import connectfour.game.LocalConnectFour;
+
+/**
+ * Counts all sequences of moves of a given length starting from a position
+ * (perft). Games ending before the full length is reached are not counted.
+ * The counts are compared with stored reference values, so that the tool
+ * verifies the move generation and the detection of finished games of
+ * {@link LocalConnectFour LocalConnectFour} and measures its speed.
+ * <p>
+ * With the option <code>-check</code> every visited position is also
+ * compared with a {@link ReferenceBoard simple reference implementation}
+ * which stores the grid as a <code>Players[][]</code> array and scans the
+ * whole grid for a winning row. This allows to check an optimized board
+ * representation and its incremental win detection, including the reported
+ * winning row, against a straightforward one.
+ * <p>
+ * Usage: <code>Perft [-check] depth [rows columns winLength [moves]]</code>
+ * <br>
+ * The optional moves are the columns of the moves leading to the start
+ * position, e.g. <code>3,3,4</code>. <code>Perft -verify</code> checks all
+ * stored reference values.
+ */
+public class Perft
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Straightforward implementation of the game rules. The grid is stored as
+     * an array of players. After every move and undo the whole grid is
+     * scanned for a winning row, independently of the last dropped disc.
+     * <p>
+     * The winning row is reported like by {@link LocalConnectFour
+     * LocalConnectFour}: A row starts at its first disc against the direction
+     * (right, up, up left or up right) and ends win length - 1 fields further.
+     * If there are several winning rows, the one whose end lies first when
+     * scanning the rows from bottom to top and each row from left to right
+     * is reported, at equal ends the one whose direction comes first in the
+     * order above.
+     */
+    static class ReferenceBoard
+    {
+        /** Row and column directions in the order of their priority. */
+        private final static int[][] directions = {
+            { 0, 1 }, { 1, 0 }, { 1, -1 }, { 1, 1 } };
+        
+        /** The grid. Row 0 is the bottom row. */
+        private final Players[][] grid;
+        
+        /** Number of discs in each column. */
+        private final int[] heights;
+        
+        /** Discs needed in a row to win. */
+        private final int winLength;
+        
+        /** Columns of the dropped discs. */
+        private final int[] moves;
+        
+        /** Number of dropped discs. */
+        private int moveCount;
+        
+        /** Player who has to move next. */
+        private Players currentPlayer = Players.FIRST;
+        
+        /** Winner or null if nobody has won. */
+        private Players winner;
+        
+        /** Fields of the winning row or -1 if nobody has won. */
+        private int winStartRow = -1, winStartColumn = -1, winEndRow = -1,
+                    winEndColumn = -1;
+        
+        public ReferenceBoard( int rows, int columns, int winLength )
+        {
+            grid = new Players[rows][columns];
+            for( Players[] row : grid )
+                Arrays.fill( row, Players.UNDEFINED );
+            heights = new int[columns];
+            moves = new int[rows * columns];
+            this.winLength = winLength;
+        }
+        
+        public boolean isValidMove( int column )
+        {
+            return winner == null && heights[column] < grid.length;
+        }
+        
+        public void doMove( int column )
+        {
+            final int row = heights[column]++;
+            grid[row][column] = currentPlayer;
+            moves[moveCount++] = column;
+            currentPlayer = (currentPlayer == Players.FIRST) ? Players.SECOND
+                                                             : Players.FIRST;
+            findWinner();
+        }
+        
+        public void undoLastMove()
+        {
+            final int column = moves[--moveCount];
+            grid[--heights[column]][column] = Players.UNDEFINED;
+            currentPlayer = (currentPlayer == Players.FIRST) ? Players.SECOND
+                                                             : Players.FIRST;
+            findWinner();
+        }
+        
+        /**
+         * Scans the whole grid for winning rows and sets the {@link #winner
+         * winner} and the reported winning row.
+         */
+        private void findWinner()
+        {
+            winner = null;
+            winStartRow = winStartColumn = winEndRow = winEndColumn = -1;
+            int winDirection = -1;
+            for( int row = 0; row < grid.length; row++ )
+            {
+                for( int column = 0; column < grid[row].length; column++ )
+                {
+                    final Players player = grid[row][column];
+                    if( player == Players.UNDEFINED )
+                        continue;
+                    for( int d = 0; d < directions.length; d++ )
+                    {
+                        final int dRow = directions[d][0];
+                        final int dColumn = directions[d][1];
+                        
+                        /* Only count rows from their first disc. */
+                        if( getFieldOrUndefined( row - dRow, column - dColumn )
+                            == player )
+                            continue;
+                        int n = 1;
+                        while( getFieldOrUndefined( row + n * dRow,
+                                                    column + n * dColumn )
+                               == player )
+                            n++;
+                        if( n < winLength )
+                            continue;
+                        
+                        final int endRow = row + (winLength - 1) * dRow;
+                        final int endColumn = column
+                                              + (winLength - 1) * dColumn;
+                        if( winner == null || endRow < winEndRow
+                            || (endRow == winEndRow
+                                && (endColumn < winEndColumn
+                                    || (endColumn == winEndColumn
+                                        && d < winDirection))) )
+                        {
+                            winner = player;
+                            winStartRow = row;
+                            winStartColumn = column;
+                            winEndRow = endRow;
+                            winEndColumn = endColumn;
+                            winDirection = d;
+                        }
+                    }
+                }
+            }
+        }
+        
+        /**
+         * @return Returns the owner of a field or {@link Players#UNDEFINED
+         *     Players.UNDEFINED} if the field lies outside of the grid.
+         */
+        private Players getFieldOrUndefined( int row, int column )
+        {
+            if( row < 0 || row >= grid.length || column < 0
+                || column >= grid[0].length )
+                return Players.UNDEFINED;
+            return grid[row][column];
+        }
+        
+        public boolean isGameFinished()
+        {
+            return winner != null || moveCount == moves.length;
+        }
+        
+        /** @return Returns the winner, null for a draw or no winner yet. */
+        public Players getWinner()
+        {
+            return winner;
+        }
+        
+        public Players getCurrentPlayer()
+        {
+            return currentPlayer;
+        }
+        
+        public Players getField( int row, int column )
+        {
+            return grid[row][column];
+        }
+        
+        public int getWinStartRow()
+        {
+            return winStartRow;
+        }
+        
+        public int getWinStartColumn()
+        {
+            return winStartColumn;
+        }
+        
+        public int getWinEndRow()
+        {
+            return winEndRow;
+        }
+        
+        public int getWinEndColumn()
+        {
+            return winEndColumn;
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Reference values for the empty grid. Each row contains the number of
+     * rows, columns, the win length and the counts for the depths 1, 2, ...
+     */
+    private final static long[][] referenceCounts = {
+        { 6, 7, 4, 7, 49, 343, 2401, 16807, 117649, 823536, 5673234,
+          39394572 },
+        { 8, 8, 4, 8, 64, 512, 4096, 32768, 262144, 2097152, 16553664 },
+        { 5, 5, 4, 5, 25, 125, 625, 3125, 15620, 77980, 380860, 1874080 },
+        { 4, 4, 3, 4, 16, 64, 256, 1020, 3588, 13148, 40520, 122884 }
+    };
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Counts the sequences of moves.
+     * @param game Start position. Will be unchanged after the call.
+     * @param depth Length of the sequences.
+     * @return Number of sequences of the given length which do not contain a
+     *     finished position before their last move.
+     */
+    static long perft( LocalConnectFour game, int depth )
+    {
+        if( depth == 0 )
+            return 1;
+        if( game.isGameFinished() )
+            return 0;
+        
+        long count = 0;
+        for( int i = 0; i < game.getColumns(); i++ )
+        {
+            if( depth == 1 )
+            {
+                if( game.isValidMove( i ) )
+                    count++;
+            }
+            else if( game.doMove( i ) )
+            {
+                count += perft( game, depth - 1 );
+                game.undoLastMove();
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Counts the sequences of moves like {@link #perft(LocalConnectFour, int)
+     * perft()} and compares every visited position with the reference
+     * implementation.
+     * @param game Start position. Will be unchanged after the call.
+     * @param reference The same position in the reference implementation.
+     * @param depth Length of the sequences.
+     * @return Number of sequences.
+     * @throws IllegalStateException If the positions differ.
+     */
+    static long check( LocalConnectFour game, ReferenceBoard reference,
+                       int depth )
+    {
+        compare( game, reference );
+        if( depth == 0 )
+            return 1;
+        if( game.isGameFinished() )
+            return 0;
+        
+        long count = 0;
+        for( int i = 0; i < game.getColumns(); i++ )
+        {
+            final boolean valid = reference.isValidMove( i );
+            if( game.isValidMove( i ) != valid )
+                throw new IllegalStateException( "Validity of move " + i
+                    + " differs after moves " + game.getMoves() );
+            if( !valid )
+                continue;
+            game.doMove( i );
+            reference.doMove( i );
+            count += check( game, reference, depth - 1 );
+            game.undoLastMove();
+            reference.undoLastMove();
+        }
+        return count;
+    }
+    
+    /**
+     * Compares a position with the same position in the reference
+     * implementation.
+     * @param game The position.
+     * @param reference The position in the reference implementation.
+     * @throws IllegalStateException If the positions differ.
+     */
+    static void compare( LocalConnectFour game, ReferenceBoard reference )
+    {
+        Players winner = game.isGameFinished() ? game.getWinner() : null;
+        if( winner == Players.UNDEFINED )
+            winner = null;
+        if( game.isGameFinished() != reference.isGameFinished()
+            || winner != reference.getWinner()
+            || game.getCurrentPlayer() != reference.getCurrentPlayer() )
+            throw new IllegalStateException( "State differs after moves "
+                                             + game.getMoves() );
+        if( game.getWinStartRow() != reference.getWinStartRow()
+            || game.getWinStartColumn() != reference.getWinStartColumn()
+            || game.getWinEndRow() != reference.getWinEndRow()
+            || game.getWinEndColumn() != reference.getWinEndColumn() )
+            throw new IllegalStateException( "Winning row differs after moves "
+                                             + game.getMoves() );
+        for( int row = 0; row < game.getRows(); row++ )
+        {
+            for( int column = 0; column < game.getColumns(); column++ )
+            {
+                if( game.getField( row, column )
+                    != reference.getField( row, column ) )
+                    throw new IllegalStateException( "Field " + row + ", "
+                        + column + " differs after moves " + game.getMoves() );
+            }
+        }
+    }
+    
+    /**
+     * Looks up a stored reference value.
+     * @return The reference value or -1 if there is none.
+     */
+    static long getReferenceCount( int rows, int columns, int winLength,
+                                   int depth )
+    {
+        for( long[] counts : referenceCounts )
+        {
+            if( counts[0] == rows && counts[1] == columns
+                && counts[2] == winLength && depth + 2 < counts.length )
+                return counts[depth + 2];
+        }
+        return -1;
+    }
+    
+    /**
+     * Counts the sequences for all depths up to the given one and prints the
+     * results.
+     * @param game Start position.
+     * @param depth Maximum depth.
+     * @param checked Whether to compare with the reference implementation.
+     * @param verify Whether to compare the counts with the reference values.
+     * @return False if a count differs from its reference value.
+     */
+    static boolean run( LocalConnectFour game, int depth, boolean checked,
+                        boolean verify )
+    {
+        System.out.println( "Grid " + game.getRows() + "x" + game.getColumns()
+                            + ", win length " + game.getWinLength()
+                            + ", moves " + game.getMoves()
+                            + (checked ? ", checked" : "") );
+        System.out.println( "depth            count   time [ms]    knodes/s"
+                            + "  reference" );
+        boolean ok = true;
+        for( int d = 1; d <= depth; d++ )
+        {
+            long start = System.nanoTime();
+            long count;
+            if( checked )
+            {
+                ReferenceBoard reference = new ReferenceBoard(
+                    game.getRows(), game.getColumns(), game.getWinLength() );
+                for( int move : game.getMoves() )
+                    reference.doMove( move );
+                count = check( game, reference, d );
+            }
+            else
+                count = perft( game, d );
+            double millis = (System.nanoTime() - start) / 1e6;
+            
+            String result = "";
+            if( verify )
+            {
+                long expected = getReferenceCount( game.getRows(),
+                    game.getColumns(), game.getWinLength(), d );
+                if( expected < 0 )
+                    result = "none";
+                else if( expected == count )
+                    result = "ok";
+                else
+                {
+                    result = "FAILED, expected " + expected;
+                    ok = false;
+                }
+            }
+            System.out.println( String.format( "%5d  %15d  %10.1f  %10.1f  %s",
+                d, count, millis, count / Math.max( millis, 1e-3 ), result ) );
+        }
+        return ok;
+    }
+    
+    public static void main( String[] args )
+    {
+        if( args.length == 1 && args[0].equals( "-verify" ) )
+        {
+            boolean ok = true;
+            for( long[] counts : referenceCounts )
+            {
+                LocalConnectFour game = new LocalConnectFour( (int) counts[0],
+                    (int) counts[1], (int) counts[2], Players.FIRST );
+                ok &= run( game, counts.length - 3, false, true );
+            }
+            System.exit( ok ? 0 : 1 );
+        }
+        
+        int a = 0;
+        boolean checked = args.length > 0 && args[0].equals( "-check" );
+        if( checked )
+            a++;
+        if( args.length <= a )
+        {
+            System.err.println( "Usage: Perft [-check] depth [rows columns "
+                                + "winLength [moves]]" );
+            System.err.println( "       Perft -verify" );
+            System.exit( 1 );
+        }
+        int depth = Integer.parseInt( args[a] );
+        int rows = (args.length > a + 3) ? Integer.parseInt( args[a + 1] ) : 6;
+        int columns = (args.length > a + 3) ? Integer.parseInt( args[a + 2] )
+                      : 7;
+        int winLength = (args.length > a + 3)
+                        ? Integer.parseInt( args[a + 3] ) : 4;
+        
+        LocalConnectFour game = new LocalConnectFour( rows, columns, winLength,
+                                                      Players.FIRST );
+        if( args.length > a + 4 )
+        {
+            for( String move : args[a + 4].split( "," ) )
+            {
+                if( !game.doMove( Integer.parseInt( move.trim() ) ) )
+                {
+                    System.err.println( "Invalid move: " + move );
+                    System.exit( 1 );
+                }
+            }
+        }
+        boolean ok = run( game, depth, checked, game.getMoves().isEmpty() );
+        System.exit( ok ? 0 : 1 );
+    }
+}
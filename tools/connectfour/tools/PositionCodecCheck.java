@@ -0,0 +1,179 @@
+/* ConnectFour
+ * File: PositionCodecCheck.java
+ * Creation: 21.10.2026 18:02:55
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.tools;
+
+import java.nio.ByteBuffer;
+
+import connectfour.game.IConnectFour.Players;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.PositionCodec;
+import connectfour.game.XorShiftRandom;
+
+/**
+ * Verifies that positions encoded with {@link PositionCodec PositionCodec}
+ * are decoded to the same positions. Random games are played on all grid
+ * sizes supported by the program (3 to 20 rows and columns) with random win
+ * lengths and turn limits, encoded in both formats and decoded again. The
+ * average size of the encoded positions and the speed of the codec are
+ * reported. Clones and games restored from snapshots are compared with the
+ * original games, too.
+ * <p>
+ * Usage: <code>PositionCodecCheck [gamesPerSize [seed]]</code>
+ */
+public class PositionCodecCheck
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Smallest and largest supported number of rows and columns. */
+    private final static int minSize = 3, maxSize = 20;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Plays random moves.
+     * @param random Random number generator.
+     * @param rows Number of rows.
+     * @param columns Number of columns.
+     * @return A game with a random number of random moves.
+     */
+    static LocalConnectFour createGame( XorShiftRandom random, int rows,
+                                        int columns )
+    {
+        final int winLength = 3 + random.nextInt( Math.max( rows, columns )
+                                                  - 2 );
+        LocalConnectFour game = new LocalConnectFour( rows, columns, winLength,
+            (random.nextInt( 2 ) == 0) ? Players.FIRST : Players.SECOND );
+        if( random.nextInt( 4 ) == 0 )
+            game.setMaxTurns( 1 + random.nextInt( rows * columns ) );
+        final int moves = random.nextInt( rows * columns + 1 );
+        while( game.getMoves().size() < moves && !game.isGameFinished() )
+            game.doMove( random.nextInt( columns ) );
+        return game;
+    }
+    
+    /**
+     * Compares a game with its decoded copy.
+     * @param game The original game.
+     * @param decoded The decoded game.
+     * @param moves Whether the move logs have to be equal.
+     * @throws IllegalStateException If the games differ.
+     */
+    static void compare( LocalConnectFour game, LocalConnectFour decoded,
+                         boolean moves )
+    {
+        if( game.getRows() != decoded.getRows()
+            || game.getColumns() != decoded.getColumns()
+            || game.getWinLength() != decoded.getWinLength()
+            || game.getMaxTurns() != decoded.getMaxTurns()
+            || game.getCurrentPlayer() != decoded.getCurrentPlayer()
+            || game.isGameFinished() != decoded.isGameFinished()
+            || game.getWinner() != decoded.getWinner()
+            || game.getWinStartRow() != decoded.getWinStartRow()
+            || game.getWinStartColumn() != decoded.getWinStartColumn()
+            || game.getWinEndRow() != decoded.getWinEndRow()
+            || game.getWinEndColumn() != decoded.getWinEndColumn()
+            || game.getHash() != decoded.getHash()
+            || game.getMoves().size() != decoded.getMoves().size()
+            || (moves && !game.getMoves().toString().equals(
+                             decoded.getMoves().toString() )) )
+            throw new IllegalStateException( "Decoded game differs: grid "
+                + game.getRows() + "x" + game.getColumns() + ", moves "
+                + game.getMoves() );
+        for( int row = 0; row < game.getRows(); row++ )
+        {
+            for( int column = 0; column < game.getColumns(); column++ )
+            {
+                if( game.getField( row, column )
+                    != decoded.getField( row, column ) )
+                    throw new IllegalStateException( "Field " + row + ", "
+                        + column + " differs after moves " + game.getMoves() );
+            }
+        }
+    }
+    
+    public static void main( String[] args )
+    {
+        int games = (args.length > 0) ? Integer.parseInt( args[0] ) : 50;
+        long seed = (args.length > 1) ? Long.parseLong( args[1] ) : 1;
+        XorShiftRandom random = new XorShiftRandom( seed );
+        
+        ByteBuffer buffer = ByteBuffer.allocate(
+            PositionCodec.getMaxEncodedSize( maxSize, maxSize ) );
+        PositionCodec.Format[] formats = PositionCodec.Format.values();
+        long[] bytes = new long[formats.length];
+        long[] discs = new long[formats.length];
+        long time = 0, positions = 0;
+        for( int rows = minSize; rows <= maxSize; rows++ )
+        {
+            for( int columns = minSize; columns <= maxSize; columns++ )
+            {
+                for( int i = 0; i < games; i++ )
+                {
+                    LocalConnectFour game = createGame( random, rows,
+                                                        columns );
+                    compare( game, game.clone(), true );
+                    compare( game, game.getSnapshot().toGame(), true );
+                    for( int f = 0; f < formats.length; f++ )
+                    {
+                        long start = System.nanoTime();
+                        buffer.clear();
+                        PositionCodec.encode( game, formats[f], buffer );
+                        final int size = buffer.position();
+                        buffer.flip();
+                        LocalConnectFour decoded =
+                            PositionCodec.decode( buffer );
+                        time += System.nanoTime() - start;
+                        if( buffer.hasRemaining() )
+                            throw new IllegalStateException(
+                                "Not all bytes decoded." );
+                        compare( game, decoded,
+                                 formats[f] == PositionCodec.Format.MOVES );
+                        bytes[f] += size;
+                        discs[f] += game.getMoves().size();
+                        positions++;
+                    }
+                }
+            }
+        }
+        
+        System.out.println( positions + " positions decoded correctly, "
+                            + String.format( "%.1f", positions * 1e6 / time )
+                            + " encoded and decoded positions/ms" );
+        for( int f = 0; f < formats.length; f++ )
+            System.out.println( String.format(
+                "%-6s  %.1f bytes per position, %.2f bits per disc",
+                formats[f], (double) bytes[f] * formats.length / positions,
+                8.0 * bytes[f] / discs[f] ) );
+        
+        LocalConnectFour standard = new LocalConnectFour( 6, 7, 4,
+                                                          Players.FIRST );
+        for( int column : new int[] { 3, 3, 4, 2, 3, 3, 5, 1, 4, 4 } )
+            standard.doMove( column );
+        for( PositionCodec.Format format : formats )
+            System.out.println( "6x7 after 10 moves, " + format + ": "
+                + PositionCodec.encode( standard, format ).length
+                + " bytes" );
+    }
+}
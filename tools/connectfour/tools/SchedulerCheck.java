@@ -0,0 +1,210 @@
+/* ConnectFour
+ * File: SchedulerCheck.java
+ * Creation: 24.10.2026 11:26:48
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import connectfour.game.AiScheduler;
+import connectfour.game.ConnectFourAi;
+import connectfour.game.IConnectFour.Players;
+import connectfour.game.LocalConnectFour;
+
+/**
+ * Verifies that the {@link AiScheduler AiScheduler} handles cancelled moves
+ * and a shutdown while a move is running. The scheduler has a single worker
+ * which is kept busy by a deep search, so that the other moves stay pending
+ * while they are cancelled or the scheduler is shut down. Exceptions thrown
+ * in the worker threads are reported as failures.
+ * <p>
+ * Usage: <code>SchedulerCheck</code>
+ */
+public class SchedulerCheck
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Maximum time in milliseconds to wait for a move or the workers. */
+    private final static long timeout = 10000;
+    
+    /** Exceptions thrown in other threads. */
+    private final static List<Throwable> uncaught =
+        Collections.synchronizedList( new ArrayList<Throwable>() );
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param game The game.
+     * @param recDepth Recursion depth of the AI.
+     * @return Returns an AI for the game without opening book.
+     */
+    static ConnectFourAi createAi( LocalConnectFour game, int recDepth )
+    {
+        ConnectFourAi ai = new ConnectFourAi( game, recDepth, 1 );
+        ai.setOpeningBook( null );
+        return ai;
+    }
+    
+    /**
+     * Submits a move which keeps the only worker of the scheduler busy until
+     * it is cancelled.
+     * @param scheduler The scheduler.
+     * @param game The game of the move.
+     * @return The running move.
+     * @throws InterruptedException If the thread is interrupted while
+     *     waiting for the move to start.
+     */
+    static AiScheduler.ScheduledMove startLongMove( AiScheduler scheduler,
+        LocalConnectFour game ) throws InterruptedException
+    {
+        AiScheduler.ScheduledMove move = scheduler.submit( game,
+            createAi( game, game.getRows() * game.getColumns() ) );
+        final long end = System.currentTimeMillis() + timeout;
+        while( scheduler.getActiveWorkers() == 0 )
+        {
+            check( System.currentTimeMillis() < end,
+                   "The long move has not been started." );
+            Thread.sleep( 1 );
+        }
+        return move;
+    }
+    
+    /**
+     * @param condition Condition which has to be true.
+     * @param message Description of the failure.
+     * @throws IllegalStateException If the condition is false.
+     */
+    static void check( boolean condition, String message )
+    {
+        if( !condition )
+            throw new IllegalStateException( message );
+    }
+    
+    /**
+     * Cancels a pending move of a game and submits another one, which has
+     * to be run after the running move of another game has been cancelled.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    static void checkCancel() throws InterruptedException
+    {
+        AiScheduler scheduler = new AiScheduler( 1, 4 );
+        LocalConnectFour running = new LocalConnectFour( 8, 9, 4,
+                                                         Players.FIRST );
+        LocalConnectFour pending = new LocalConnectFour( 6, 7, 4,
+                                                         Players.FIRST );
+        AiScheduler.ScheduledMove longMove = startLongMove( scheduler,
+                                                            running );
+        
+        AiScheduler.ScheduledMove cancelled = scheduler.submit( pending,
+            createAi( pending, 4 ) );
+        cancelled.cancel();
+        check( cancelled.isDone(), "Cancelled pending move is not done." );
+        check( scheduler.getQueueDepth() == 0,
+               "Cancelled move is still counted as pending." );
+        
+        AiScheduler.ScheduledMove next = scheduler.submit( pending,
+            createAi( pending, 4 ) );
+        longMove.cancel();
+        next.await();
+        check( !next.isCancelled() && pending.getMoves().size() == 1,
+               "Move submitted after a cancelled one has not been done." );
+        check( running.getMoves().size() == 0,
+               "Cancelled running move has been done." );
+        
+        scheduler.shutdown();
+        check( scheduler.awaitTermination( timeout ),
+               "Workers have not stopped." );
+        check( scheduler.getCompleted() == 3, "Completed "
+               + scheduler.getCompleted() + " moves instead of 3." );
+    }
+    
+    /**
+     * Shuts the scheduler down while a move is running and moves of the same
+     * and another game are pending.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    static void checkShutdown() throws InterruptedException
+    {
+        AiScheduler scheduler = new AiScheduler( 1, 4 );
+        LocalConnectFour running = new LocalConnectFour( 8, 9, 4,
+                                                         Players.FIRST );
+        LocalConnectFour other = new LocalConnectFour( 6, 7, 4,
+                                                       Players.FIRST );
+        AiScheduler.ScheduledMove longMove = startLongMove( scheduler,
+                                                            running );
+        AiScheduler.ScheduledMove sameGame = scheduler.submit( running,
+            createAi( running, 4 ) );
+        AiScheduler.ScheduledMove otherGame = scheduler.submit( other,
+            createAi( other, 4 ) );
+        
+        scheduler.shutdown();
+        check( sameGame.isDone() && sameGame.isCancelled()
+               && otherGame.isDone() && otherGame.isCancelled(),
+               "Pending moves have not been cancelled by the shutdown." );
+        check( !longMove.isDone(), "Running move has been stopped by the "
+               + "shutdown." );
+        try
+        {
+            scheduler.offer( other, createAi( other, 4 ) );
+            check( false, "Move accepted after the shutdown." );
+        }
+        catch( IllegalStateException e )
+        {
+            /* Expected. */
+        }
+        
+        longMove.cancel();
+        check( scheduler.awaitTermination( timeout ),
+               "Workers have not stopped." );
+        check( longMove.isDone(), "Running move is not done." );
+        check( running.getMoves().size() == 0
+               && other.getMoves().size() == 0,
+               "Cancelled moves have been done." );
+        check( scheduler.getQueueDepth() == 0
+               && scheduler.getActiveWorkers() == 0,
+               "Moves are left after the shutdown." );
+        check( scheduler.getCompleted() == 3, "Completed "
+               + scheduler.getCompleted() + " moves instead of 3." );
+    }
+    
+    public static void main( String[] args ) throws InterruptedException
+    {
+        Thread.setDefaultUncaughtExceptionHandler(
+            new Thread.UncaughtExceptionHandler() {
+                @Override
+                public void uncaughtException( Thread t, Throwable e )
+                {
+                    uncaught.add( e );
+                    e.printStackTrace();
+                }
+            } );
+        
+        checkCancel();
+        checkShutdown();
+        check( uncaught.isEmpty(), uncaught.size() + " exceptions thrown "
+               + "in other threads." );
+        System.out.println( "Cancelled moves and shutdown handled correctly" );
+    }
+}
@@ -0,0 +1,183 @@
+/* ConnectFour
+ * File: SearchCheck.java
+ * Creation: 23.10.2026 10:12:47
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.tools;
+
+import java.util.EnumSet;
+
+import connectfour.game.ConnectFourAi;
+import connectfour.game.IConnectFour.Players;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.TranspositionTable;
+import connectfour.game.XorShiftRandom;
+
+/**
+ * Verifies that the {@link ConnectFourAi.Algorithm search algorithms} of
+ * {@link ConnectFourAi ConnectFourAi} find the same rating and best move.
+ * A fixed set of random positions is searched to a fixed depth with every
+ * algorithm, with and without transposition table. Equally rated moves
+ * never replace the best move and the moves are only ordered by their
+ * distance to the center, so that the best move does not depend on the
+ * number of cut offs.
+ * <p>
+ * Usage: <code>SearchCheck [depth [positionsPerGrid [seed]]]</code>
+ */
+public class SearchCheck
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ////////////////////////////////////////////////////////////////////////////
+    /** AI searching a position deterministically to a fixed depth. */
+    private static class FixedDepthSearch extends ConnectFourAi
+    {
+        public FixedDepthSearch( LocalConnectFour game, int depth,
+                                 Algorithm algorithm,
+                                 TranspositionTable transpositionTable )
+        {
+            super( game, depth, 1, transpositionTable );
+            setAlgorithm( algorithm );
+            setEndgameThreshold( 0 );
+            setMoveOrdering( EnumSet.of( MoveOrdering.CENTER_FIRST ) );
+        }
+        
+        /**
+         * Searches a position.
+         * @param position The position. It is not changed.
+         * @return An array containing the rating and the column of the best
+         *     move.
+         */
+        public int[] search( LocalConnectFour position )
+        {
+            if( getTranspositionTable() != null )
+                getTranspositionTable().clear();
+            setGameCopy( position.clone() );
+            setSeed( 0 );
+            return search();
+        }
+        
+        @Override
+        protected boolean replacesEqualMove()
+        {
+            return false;
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Grid sizes (rows, columns, win length) of the positions. */
+    private final static int[][] gridSizes = {
+        { 6, 7, 4 },
+        { 8, 8, 4 },
+        { 5, 5, 3 }
+    };
+    
+    /** Memory budget of the transposition table in bytes. */
+    private final static long memoryBudget = 16L << 20;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Plays random moves which do not end the game.
+     * @param random Random number generator.
+     * @param rows Number of rows.
+     * @param columns Number of columns.
+     * @param winLength Discs needed in a row to win.
+     * @return A game with up to half of the fields filled.
+     */
+    static LocalConnectFour createPosition( XorShiftRandom random, int rows,
+                                            int columns, int winLength )
+    {
+        LocalConnectFour game = new LocalConnectFour( rows, columns, winLength,
+                                                      Players.FIRST );
+        final int moves = random.nextInt( rows * columns / 2 + 1 );
+        for( int i = 0; i < moves; i++ )
+        {
+            if( !game.doMove( random.nextInt( columns ) ) )
+                continue;
+            if( game.isGameFinished() )
+            {
+                game.undoLastMove();
+                break;
+            }
+        }
+        return game;
+    }
+    
+    public static void main( String[] args )
+    {
+        int depth = (args.length > 0) ? Integer.parseInt( args[0] ) : 6;
+        int positions = (args.length > 1) ? Integer.parseInt( args[1] ) : 100;
+        long seed = (args.length > 2) ? Long.parseLong( args[2] ) : 1;
+        XorShiftRandom random = new XorShiftRandom( seed );
+        TranspositionTable tt = new TranspositionTable( memoryBudget );
+        
+        ConnectFourAi.Algorithm[] algorithms =
+            ConnectFourAi.Algorithm.values();
+        int checked = 0, differences = 0;
+        for( int[] size : gridSizes )
+        {
+            for( int i = 0; i < positions; i++ )
+            {
+                LocalConnectFour position = createPosition( random, size[0],
+                                                            size[1], size[2] );
+                int[] reference = null;
+                String referenceName = null;
+                for( ConnectFourAi.Algorithm algorithm : algorithms )
+                {
+                    for( TranspositionTable table
+                         : new TranspositionTable[] { null, tt } )
+                    {
+                        final String name = algorithm
+                            + ((table != null) ? " with table" : "");
+                        int[] result = new FixedDepthSearch(
+                            position, depth, algorithm, table ).search(
+                                position );
+                        if( reference == null )
+                        {
+                            reference = result;
+                            referenceName = name;
+                        }
+                        else if( result[0] != reference[0]
+                                 || result[1] != reference[1] )
+                        {
+                            differences++;
+                            System.out.println( "Grid " + size[0] + "x"
+                                + size[1] + ", moves " + position.getMoves()
+                                + ": " + referenceName + " rates column "
+                                + reference[1] + " with " + reference[0]
+                                + ", " + name + " column " + result[1]
+                                + " with " + result[0] );
+                        }
+                    }
+                }
+                checked++;
+            }
+        }
+        
+        System.out.println( checked + " positions searched to depth " + depth
+                            + ", " + differences + " differences" );
+        if( differences > 0 )
+            System.exit( 1 );
+    }
+}
@@ -0,0 +1,397 @@
+/* ConnectFour
+ * File: SelfPlay.java
+ * Creation: 22.10.2026 11:37:26
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.tools;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import connectfour.game.ConnectFourAi;
+import connectfour.game.IConnectFour.Players;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.TranspositionTable;
+import connectfour.game.XorShiftRandom;
+
+/**
+ * Lets two AIs play many games against each other without the graphical user
+ * interface. The games are played in parallel, one game per thread. Every
+ * game starts with a few random moves to get different games. Each opening
+ * is played twice with swapped colors, so that an advantage of the first
+ * player cancels out.
+ * <p>
+ * The result of every game and its moves can be written to a file. At the
+ * end the score of AI A is reported with a 95% confidence interval, along
+ * with the resulting Elo difference and the number of games per second.
+ * <p>
+ * Usage: <code>SelfPlay [options]</code>
+ * <br>
+ * Options:
+ * <ul>
+ * <li><code>-a spec</code>, <code>-b spec</code>: {@link AiConfig Settings}
+ * of the AIs A and B.</li>
+ * <li><code>-games n</code>: Number of games (default 100).</li>
+ * <li><code>-threads n</code>: Number of parallel games (default number of
+ * processors).</li>
+ * <li><code>-grid rows,columns,winLength</code>: Grid size and win length
+ * (default 6,7,4).</li>
+ * <li><code>-opening n</code>: Number of random moves at the beginning of
+ * each game (default 2).</li>
+ * <li><code>-seed n</code>: Seed for the openings and the AIs (default
+ * 1).</li>
+ * <li><code>-out file</code>: File to write the results to.</li>
+ * </ul>
+ */
+public class SelfPlay
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ////////////////////////////////////////////////////////////////////////////
+    /** Result of a game. */
+    static class GameRecord
+    {
+        /** Winner or {@link Players#UNDEFINED} for a draw. */
+        final Players winner;
+        
+        /** Columns of all moves including the opening. */
+        final int[] moves;
+        
+        /** Nodes searched by the first and the second player. */
+        final long[] nodes;
+        
+        /** Time needed for the game in nanoseconds. */
+        final long time;
+        
+        GameRecord( Players winner, int[] moves, long[] nodes, long time )
+        {
+            this.winner = winner;
+            this.moves = moves;
+            this.nodes = nodes;
+            this.time = time;
+        }
+        
+        /**
+         * @param player A player.
+         * @return Returns the score of the player: 1 for a win, 0.5 for a draw
+         *     and 0 for a loss.
+         */
+        double getScore( Players player )
+        {
+            if( winner == Players.UNDEFINED )
+                return 0.5;
+            return (winner == player) ? 1 : 0;
+        }
+        
+        /** @return Returns the result in the form "1-0", "0-1" or "1/2-1/2". */
+        String getResult()
+        {
+            if( winner == Players.FIRST )
+                return "1-0";
+            if( winner == Players.SECOND )
+                return "0-1";
+            return "1/2-1/2";
+        }
+        
+        /** @return Returns the moves separated by commas. */
+        String getMoveList()
+        {
+            StringBuilder builder = new StringBuilder();
+            for( int i = 0; i < moves.length; i++ )
+            {
+                if( i > 0 )
+                    builder.append( ',' );
+                builder.append( moves[i] );
+            }
+            return builder.toString();
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Memory budget of each transposition table in bytes. */
+    private final static long memoryBudget = 16L << 20;
+    
+    /**
+     * Transposition tables of the first and the second player for each
+     * thread. They are reused for all games of the thread.
+     */
+    private final static ThreadLocal<TranspositionTable[]> tables =
+        new ThreadLocal<TranspositionTable[]>() {
+            @Override
+            protected TranspositionTable[] initialValue()
+            {
+                return new TranspositionTable[] {
+                    new TranspositionTable( memoryBudget ),
+                    new TranspositionTable( memoryBudget ) };
+            }
+        };
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Creates random opening moves. No opening move ends the game. The
+     * opening is shorter if every move would end the game, for example with
+     * a win length of one.
+     * @param seed Seed of the opening.
+     * @param rows Number of rows.
+     * @param columns Number of columns.
+     * @param winLength Discs needed in a row to win.
+     * @param plies Number of moves.
+     * @return The columns of the moves.
+     */
+    static int[] createOpening( long seed, int rows, int columns,
+                                int winLength, int plies )
+    {
+        XorShiftRandom random = new XorShiftRandom( seed );
+        LocalConnectFour game = new LocalConnectFour( rows, columns, winLength,
+                                                      Players.FIRST );
+        plies = Math.min( plies, rows * columns - 1 );
+        while( game.getMoves().size() < plies )
+        {
+            /* Try all columns starting at a random one. */
+            final int first = random.nextInt( columns );
+            boolean moved = false;
+            for( int i = 0; i < columns && !moved; i++ )
+            {
+                if( !game.doMove( (first + i) % columns ) )
+                    continue;
+                if( game.isGameFinished() )
+                    game.undoLastMove();
+                else
+                    moved = true;
+            }
+            if( !moved )
+                break;
+        }
+        return game.getMoves().toArray();
+    }
+    
+    /**
+     * Plays a game between two AIs in the current thread.
+     * @param first Settings of the AI beginning the game.
+     * @param second Settings of the other AI.
+     * @param rows Number of rows.
+     * @param columns Number of columns.
+     * @param winLength Discs needed in a row to win.
+     * @param opening Moves played before the AIs take over.
+     * @param seed Seed for the AIs.
+     * @return The result of the game.
+     */
+    static GameRecord playGame( AiConfig first, AiConfig second, int rows,
+                                int columns, int winLength, int[] opening,
+                                long seed )
+    {
+        final long start = System.nanoTime();
+        LocalConnectFour game = new LocalConnectFour( rows, columns, winLength,
+                                                      Players.FIRST );
+        for( int move : opening )
+            game.doMove( move );
+        
+        TranspositionTable[] tts = tables.get();
+        ConnectFourAi[] ais = {
+            first.createAi( game, tts[0], seed ),
+            second.createAi( game, tts[1], ~seed ) };
+        long[] nodes = new long[2];
+        while( !game.isGameFinished() )
+        {
+            final int player = game.getCurrentPlayer().ordinal();
+            ais[player].move();
+            nodes[player] += ais[player].getNodes();
+        }
+        return new GameRecord( game.getWinner(), game.getMoves().toArray(),
+                               nodes, System.nanoTime() - start );
+    }
+    
+    /**
+     * Converts a score to an Elo difference.
+     * @param score Average score between 0 and 1.
+     * @return The Elo difference. Infinite for a score of 0 or 1.
+     */
+    static double toElo( double score )
+    {
+        return 400 * Math.log10( score / (1 - score) );
+    }
+    
+    public static void main( String[] args )
+        throws IOException, InterruptedException, ExecutionException
+    {
+        AiConfig a = new AiConfig( "name=A" );
+        AiConfig b = new AiConfig( "name=B" );
+        int games = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int rows = 6, columns = 7, winLength = 4;
+        int openingPlies = 2;
+        long seed = 1;
+        String out = null;
+        for( int i = 0; i + 1 < args.length; i += 2 )
+        {
+            if( args[i].equals( "-a" ) )
+                a = new AiConfig( "name=A," + args[i + 1] );
+            else if( args[i].equals( "-b" ) )
+                b = new AiConfig( "name=B," + args[i + 1] );
+            else if( args[i].equals( "-games" ) )
+                games = Integer.parseInt( args[i + 1] );
+            else if( args[i].equals( "-threads" ) )
+                threads = Integer.parseInt( args[i + 1] );
+            else if( args[i].equals( "-grid" ) )
+            {
+                String[] grid = args[i + 1].split( "," );
+                rows = Integer.parseInt( grid[0] );
+                columns = Integer.parseInt( grid[1] );
+                winLength = Integer.parseInt( grid[2] );
+            }
+            else if( args[i].equals( "-opening" ) )
+                openingPlies = Integer.parseInt( args[i + 1] );
+            else if( args[i].equals( "-seed" ) )
+                seed = Long.parseLong( args[i + 1] );
+            else if( args[i].equals( "-out" ) )
+                out = args[i + 1];
+            else
+            {
+                System.err.println( "Unknown option: " + args[i] );
+                System.exit( 1 );
+            }
+        }
+        if( args.length % 2 != 0 )
+        {
+            System.err.println( "Usage: SelfPlay [-a spec] [-b spec] "
+                + "[-games n] [-threads n] [-grid rows,columns,winLength] "
+                + "[-opening n] [-seed n] [-out file]" );
+            System.exit( 1 );
+        }
+        
+        System.out.println( "A: " + getOption( args, "-a" ) + ", B: "
+                            + getOption( args, "-b" ) );
+        System.out.println( "Grid " + rows + "x" + columns + ", win length "
+                            + winLength + ", " + games + " games, "
+                            + threads + " threads" );
+        
+        /* Game 2k and 2k+1 share the opening, A begins the even games. */
+        final AiConfig aiA = a, aiB = b;
+        final int r = rows, c = columns, w = winLength;
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        List<Future<GameRecord>> futures = new ArrayList<Future<GameRecord>>();
+        final long start = System.nanoTime();
+        for( int i = 0; i < games; i++ )
+        {
+            final boolean aFirst = (i % 2 == 0);
+            final int[] opening = createOpening( seed + i / 2, rows, columns,
+                                                 winLength, openingPlies );
+            final long gameSeed = seed * 0x9e3779b97f4a7c15L + i;
+            futures.add( executor.submit( new Callable<GameRecord>() {
+                @Override
+                public GameRecord call()
+                {
+                    return aFirst ? playGame( aiA, aiB, r, c, w, opening,
+                                              gameSeed )
+                                  : playGame( aiB, aiA, r, c, w, opening,
+                                              gameSeed );
+                }
+            } ) );
+        }
+        
+        PrintWriter writer = null;
+        if( out != null )
+        {
+            writer = new PrintWriter( new FileWriter( out ) );
+            writer.println( "# game\tfirst\tsecond\tresult\tmoves" );
+        }
+        int wins = 0, draws = 0, firstWins = 0;
+        long moves = 0, nodes = 0;
+        double sum = 0, sumOfSquares = 0;
+        for( int i = 0; i < games; i++ )
+        {
+            GameRecord record = futures.get( i ).get();
+            final boolean aFirst = (i % 2 == 0);
+            final double score = record.getScore( aFirst ? Players.FIRST
+                                                         : Players.SECOND );
+            sum += score;
+            sumOfSquares += score * score;
+            if( score == 1 )
+                wins++;
+            else if( score == 0.5 )
+                draws++;
+            if( record.winner == Players.FIRST )
+                firstWins++;
+            moves += record.moves.length;
+            nodes += record.nodes[0] + record.nodes[1];
+            if( writer != null )
+                writer.println( i + "\t" + (aFirst ? aiA : aiB) + "\t"
+                                + (aFirst ? aiB : aiA) + "\t"
+                                + record.getResult() + "\t"
+                                + record.getMoveList() );
+            if( (i + 1) % Math.max( 1, games / 10 ) == 0 )
+                System.out.println( String.format(
+                    "%d/%d games, A %d wins, %d draws, %d losses", i + 1,
+                    games, wins, draws, i + 1 - wins - draws ) );
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        if( writer != null )
+            writer.close();
+        
+        final double mean = sum / games;
+        final double variance = (games > 1)
+            ? (sumOfSquares - games * mean * mean) / (games - 1) : 0;
+        final double error = 1.96 * Math.sqrt( variance / games );
+        System.out.println( String.format(
+            "A: %d wins (%.1f%%), %d draws (%.1f%%), %d losses (%.1f%%)",
+            wins, 100.0 * wins / games, draws, 100.0 * draws / games,
+            games - wins - draws,
+            100.0 * (games - wins - draws) / games ) );
+        System.out.println( String.format(
+            "Score of A: %.3f +- %.3f (95%%), Elo difference %.0f [%.0f, %.0f]",
+            mean, error, toElo( mean ), toElo( Math.max( mean - error, 0 ) ),
+            toElo( Math.min( mean + error, 1 ) ) ) );
+        System.out.println( String.format(
+            "First player won %.1f%% of the games", 100.0 * firstWins
+                                                   / games ) );
+        System.out.println( String.format(
+            "%.1f s, %.2f games/s, %.1f moves per game, %.0f knodes/s",
+            seconds, games / seconds, (double) moves / games,
+            nodes / seconds / 1000 ) );
+    }
+    
+    /**
+     * @param args Command line arguments.
+     * @param option An option.
+     * @return Returns the value of the option or "default".
+     */
+    private static String getOption( String[] args, String option )
+    {
+        for( int i = 0; i + 1 < args.length; i += 2 )
+        {
+            if( args[i].equals( option ) )
+                return args[i + 1];
+        }
+        return "default";
+    }
+}
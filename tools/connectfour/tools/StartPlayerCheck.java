@@ -0,0 +1,220 @@
+/* ConnectFour
+ * File: StartPlayerCheck.java
+ * Creation: 24.10.2026 10:41:17
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import connectfour.game.ConnectFourAi;
+import connectfour.game.IConnectFour.Players;
+import connectfour.game.LocalConnectFour;
+import connectfour.game.OpeningBook;
+import connectfour.game.ThreatAnalyzer;
+import connectfour.game.XorShiftRandom;
+
+/**
+ * Verifies that the rating of positions does not depend on which player
+ * began the game. Random games are played twice with the same columns, once
+ * begun by the first and once by the second player. Both games have the same
+ * discs with swapped colours, so all ratings have to be negated.
+ * <p>
+ * Furthermore an opening book is written for random positions of games begun
+ * by the first player. The AI has to find the same moves in it when the
+ * positions are reached in games begun by the second player.
+ * <p>
+ * Usage: <code>StartPlayerCheck [gamesPerSize [seed]]</code>
+ */
+public class StartPlayerCheck
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Smallest and largest checked number of rows and columns. */
+    private final static int minSize = 4, maxSize = 10;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Compares the threats of two games with swapped colours after every
+     * move.
+     * @param first Game begun by the first player.
+     * @param second Game begun by the second player.
+     * @param analyzer Analyzer fitting both games.
+     * @throws IllegalStateException If the threats or their ratings differ.
+     */
+    static void compareThreats( LocalConnectFour first,
+                                LocalConnectFour second,
+                                ThreatAnalyzer analyzer )
+    {
+        analyzer.analyze( first );
+        final int rating = analyzer.getRating( first );
+        boolean[][] threats = new boolean[first.getRows()][first.getColumns()];
+        for( int row = 0; row < first.getRows(); row++ )
+            for( int column = 0; column < first.getColumns(); column++ )
+                threats[row][column] = analyzer.isThreat( Players.FIRST, row,
+                                                          column );
+        
+        analyzer.analyze( second );
+        if( analyzer.getRating( second ) != -rating )
+            throw new IllegalStateException( "Threat rating "
+                + analyzer.getRating( second ) + " instead of " + (-rating)
+                + " after moves " + second.getMoves() + " begun by the "
+                + "second player." );
+        for( int row = 0; row < first.getRows(); row++ )
+        {
+            for( int column = 0; column < first.getColumns(); column++ )
+            {
+                if( analyzer.isThreat( Players.SECOND, row, column )
+                    != threats[row][column] )
+                    throw new IllegalStateException( "Threat at " + row
+                        + ", " + column + " differs after moves "
+                        + second.getMoves() + "." );
+            }
+        }
+    }
+    
+    /**
+     * Writes an opening book with random moves for random positions of games
+     * begun by the first player and checks that the AI plays these moves in
+     * the same positions of games begun by the second player.
+     * @param random Random number generator.
+     * @param positions Number of positions in the book.
+     * @throws IOException If the book could not be written.
+     * @throws IllegalStateException If a position is not found or another
+     *     move is played.
+     */
+    static void checkOpeningBook( XorShiftRandom random, int positions )
+        throws IOException
+    {
+        final int rows = 6, columns = 7, winLength = 4, maxPlies = 6;
+        ArrayList<int[]> lines = new ArrayList<int[]>();
+        HashSet<Long> seen = new HashSet<Long>();
+        long[] hashes = new long[positions];
+        int[] ratings = new int[positions];
+        int[] moves = new int[positions];
+        int[] bookMoves = new int[positions];
+        int[] depths = new int[positions];
+        while( lines.size() < positions )
+        {
+            LocalConnectFour game = new LocalConnectFour( rows, columns,
+                winLength, Players.FIRST );
+            final int plies = random.nextInt( maxPlies + 1 );
+            while( game.getMoves().size() < plies )
+                game.doMove( random.nextInt( columns ) );
+            int move;
+            do
+            {
+                move = random.nextInt( columns );
+            } while( !game.isValidMove( move ) );
+            if( game.isGameFinished()
+                || !seen.add( game.getStartRelativeHash() ) )
+                continue;
+            
+            final int i = lines.size();
+            lines.add( game.getMoves().toArray() );
+            hashes[i] = game.getStartRelativeHash();
+            ratings[i] = i;
+            moves[i] = move;
+            bookMoves[i] = game.isStartRelativeMirrored()
+                           ? game.mirrorColumn( move ) : move;
+            depths[i] = 1;
+        }
+        
+        File file = File.createTempFile( "StartPlayerCheck", ".book" );
+        file.deleteOnExit();
+        OpeningBook.write( file, rows, columns, winLength, hashes, ratings,
+                           bookMoves, depths, positions );
+        OpeningBook book = new OpeningBook( file );
+        
+        for( int i = 0; i < positions; i++ )
+        {
+            LocalConnectFour game = new LocalConnectFour( rows, columns,
+                winLength, Players.SECOND );
+            for( int column : lines.get( i ) )
+                game.doMove( column );
+            final int index = book.find( game );
+            if( index < 0 || book.getRating( index ) != i )
+                throw new IllegalStateException( "Position after moves "
+                    + game.getMoves() + " begun by the second player not "
+                    + "found in the opening book." );
+            
+            final String line = game.getMoves().toString();
+            ConnectFourAi ai = new ConnectFourAi( game, 2, 1 );
+            ai.setOpeningBook( book );
+            ai.move();
+            if( game.getMoves().peek() != moves[i] )
+                throw new IllegalStateException( "Played column "
+                    + game.getMoves().peek() + " instead of " + moves[i]
+                    + " from the opening book after moves " + line + "." );
+        }
+    }
+    
+    public static void main( String[] args ) throws IOException
+    {
+        int games = (args.length > 0) ? Integer.parseInt( args[0] ) : 20;
+        long seed = (args.length > 1) ? Long.parseLong( args[1] ) : 1;
+        XorShiftRandom random = new XorShiftRandom( seed );
+        
+        long positions = 0;
+        for( int rows = minSize; rows <= maxSize; rows++ )
+        {
+            for( int columns = minSize; columns <= maxSize; columns++ )
+            {
+                for( int i = 0; i < games; i++ )
+                {
+                    final int winLength = 3 + random.nextInt(
+                        Math.max( rows, columns ) - 2 );
+                    LocalConnectFour first = new LocalConnectFour( rows,
+                        columns, winLength, Players.FIRST );
+                    LocalConnectFour second = new LocalConnectFour( rows,
+                        columns, winLength, Players.SECOND );
+                    ThreatAnalyzer analyzer = new ThreatAnalyzer( rows,
+                        columns, winLength );
+                    while( !first.isGameFinished() )
+                    {
+                        final int column = random.nextInt( columns );
+                        if( !first.doMove( column ) )
+                            continue;
+                        second.doMove( column );
+                        if( second.getStartPlayer() != Players.SECOND )
+                            throw new IllegalStateException( "Start player "
+                                + second.getStartPlayer() + " after moves "
+                                + second.getMoves() + "." );
+                        compareThreats( first, second, analyzer );
+                        positions++;
+                    }
+                }
+            }
+        }
+        System.out.println( positions + " positions rated equally for both "
+                            + "start players" );
+        
+        final int bookPositions = 1000;
+        checkOpeningBook( random, bookPositions );
+        System.out.println( bookPositions + " opening book positions found "
+                            + "in games begun by the second player" );
+    }
+}
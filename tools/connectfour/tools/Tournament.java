@@ -0,0 +1,598 @@
+/* ConnectFour
+ * File: Tournament.java
+ * Creation: 22.10.2026 15:04:51
+ * Author: Jan Gosmann (jan@hyper-world.de)
+ * Copyright (C) 2009 Jan Gosmann
+ */
+
+/*****************************************************************************
+ *  This program is free software: you can redistribute it and/or modify     *
+ *  it under the terms of the GNU General Public License as published by     *
+ *  the Free Software Foundation, either version 3 of the License, or        *
+ *  (at your option) any later version.                                      *
+ *                                                                           *
+ *  This program is distributed in the hope that it will be useful,          *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of           *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the            *
+ *  GNU General Public License for more details.                             *
+ *                                                                           *
+ *  You should have received a copy of the GNU General Public License        *
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.    *       
+ *****************************************************************************/
+
+package connectfour.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import connectfour.game.IConnectFour.Players;
+
+/**
+ * Plays a tournament between several AI settings. In a round robin
+ * tournament every AI plays against every other AI, in a gauntlet only the
+ * first AI plays against all others. Every round each pairing plays two
+ * games with the same random opening and swapped colors.
+ * <p>
+ * The games run on a {@link WorkStealingPool}. The ratings are updated with
+ * the Elo formula after every game. At the end maximum likelihood ratings are
+ * calculated, which unlike the incremental ratings do not depend on the order
+ * of the games. Like BayesElo they assume one draw between every pair of AIs
+ * beforehand, so that an AI winning all games still gets a finite rating.
+ * <p>
+ * Every finished game is appended to the checkpoint file. Restarting the
+ * tournament with the same arguments and checkpoint file skips the games in
+ * the file and continues with the remaining ones.
+ * <p>
+ * Usage: <code>Tournament [options] spec spec...</code>
+ * <br>
+ * Every spec describes an AI as explained in {@link AiConfig}. Options:
+ * <ul>
+ * <li><code>-mode roundrobin|gauntlet</code>: Mode of the tournament (default
+ * roundrobin).</li>
+ * <li><code>-rounds n</code>: Number of rounds (default 10).</li>
+ * <li><code>-threads n</code>: Number of parallel games (default number of
+ * processors).</li>
+ * <li><code>-grid rows,columns,winLength</code>: Grid size and win length
+ * (default 6,7,4).</li>
+ * <li><code>-opening n</code>: Number of random moves at the beginning of
+ * each game (default 2).</li>
+ * <li><code>-seed n</code>: Seed for the openings and the AIs (default
+ * 1).</li>
+ * <li><code>-checkpoint file</code>: File to store the finished games in
+ * (default tournament.txt).</li>
+ * </ul>
+ */
+public class Tournament
+{
+    ////////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Thread pool running a fixed set of tasks. Every worker has its own
+     * queue and takes the tasks from its front. A worker with an empty queue
+     * steals tasks from the back of the queues of the other workers, so that
+     * all workers stay busy even if the games take very different times.
+     */
+    static class WorkStealingPool
+    {
+        private final List<LinkedBlockingDeque<Runnable>> queues;
+        
+        /** First exception thrown by a task. */
+        private volatile Throwable failure;
+        
+        /** @param threads Number of worker threads. */
+        public WorkStealingPool( int threads )
+        {
+            queues = new ArrayList<LinkedBlockingDeque<Runnable>>( threads );
+            for( int i = 0; i < threads; i++ )
+                queues.add( new LinkedBlockingDeque<Runnable>() );
+        }
+        
+        /**
+         * Runs the tasks and waits until all are done.
+         * @param tasks Tasks to run.
+         * @throws InterruptedException If the waiting thread was interrupted.
+         * @throws RuntimeException If a task failed.
+         */
+        public void runAll( List<? extends Runnable> tasks )
+            throws InterruptedException
+        {
+            for( int i = 0; i < tasks.size(); i++ )
+                queues.get( i % queues.size() ).addLast( tasks.get( i ) );
+            
+            Thread[] workers = new Thread[queues.size()];
+            for( int i = 0; i < workers.length; i++ )
+            {
+                final int id = i;
+                workers[i] = new Thread( "Tournament worker " + i ) {
+                    @Override
+                    public void run()
+                    {
+                        work( id );
+                    }
+                };
+                workers[i].start();
+            }
+            for( Thread worker : workers )
+                worker.join();
+            if( failure != null )
+                throw new RuntimeException( "A game failed.", failure );
+        }
+        
+        /**
+         * Runs tasks until all queues are empty.
+         * @param id Index of the worker's own queue.
+         */
+        private void work( int id )
+        {
+            Runnable task;
+            while( failure == null && (task = nextTask( id )) != null )
+            {
+                try
+                {
+                    task.run();
+                }
+                catch( Throwable e )
+                {
+                    failure = e;
+                }
+            }
+        }
+        
+        /**
+         * @param id Index of the worker's own queue.
+         * @return Returns the next task of the worker or null if there are
+         *     no tasks left.
+         */
+        private Runnable nextTask( int id )
+        {
+            Runnable task = queues.get( id ).pollFirst();
+            for( int i = 1; task == null && i < queues.size(); i++ )
+                task = queues.get( (id + i) % queues.size() ).pollLast();
+            return task;
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    /** Rating of every AI at the beginning. */
+    private final static double initialRating = 1500;
+    
+    /** Maximum rating change per game. */
+    private final static double kFactor = 16;
+    
+    /** Number of iterations for the maximum likelihood ratings. */
+    private final static int iterations = 10000;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Member Variables
+    ////////////////////////////////////////////////////////////////////////////
+    private final AiConfig[] ais;
+    
+    /** Whether only the first AI plays against the others. */
+    private final boolean gauntlet;
+    private final int rows, columns, winLength;
+    private final int openingPlies;
+    private final long seed;
+    
+    /** Indices of the first and second AI of every game. */
+    private final int[][] schedule;
+    
+    /** Whether the game with the same index has been played. */
+    private final boolean[] finished;
+    
+    /** Incremental Elo rating of every AI. */
+    private final double[] ratings;
+    
+    /** Points of the AI in the first index against the one in the second. */
+    private final double[][] points;
+    
+    /** Games played between the AIs. */
+    private final int[][] games;
+    
+    private int finishedGames;
+    
+    /** Writer of the checkpoint file. */
+    private PrintWriter checkpoint;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * @param ais Settings of the AIs.
+     * @param gauntlet If true, only the first AI plays against the others.
+     * @param rounds Number of rounds.
+     * @param rows Number of rows.
+     * @param columns Number of columns.
+     * @param winLength Discs needed in a row to win.
+     * @param openingPlies Number of random moves at the beginning.
+     * @param seed Seed for the openings and the AIs.
+     */
+    public Tournament( AiConfig[] ais, boolean gauntlet, int rounds,
+                       int rows, int columns, int winLength,
+                       int openingPlies, long seed )
+    {
+        this.ais = ais;
+        this.gauntlet = gauntlet;
+        this.rows = rows;
+        this.columns = columns;
+        this.winLength = winLength;
+        this.openingPlies = openingPlies;
+        this.seed = seed;
+        
+        List<int[]> pairings = new ArrayList<int[]>();
+        for( int i = 0; i < ais.length; i++ )
+        {
+            for( int j = i + 1; j < ais.length; j++ )
+            {
+                if( !gauntlet || i == 0 )
+                    pairings.add( new int[] { i, j } );
+            }
+        }
+        schedule = new int[2 * rounds * pairings.size()][];
+        for( int round = 0, game = 0; round < rounds; round++ )
+        {
+            for( int[] pairing : pairings )
+            {
+                schedule[game++] = new int[] { pairing[0], pairing[1] };
+                schedule[game++] = new int[] { pairing[1], pairing[0] };
+            }
+        }
+        
+        finished = new boolean[schedule.length];
+        ratings = new double[ais.length];
+        Arrays.fill( ratings, initialRating );
+        points = new double[ais.length][ais.length];
+        games = new int[ais.length][ais.length];
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Static Methods
+    ////////////////////////////////////////////////////////////////////////////
+    public static void main( String[] args )
+        throws IOException, InterruptedException
+    {
+        boolean gauntlet = false;
+        int rounds = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int rows = 6, columns = 7, winLength = 4;
+        int openingPlies = 2;
+        long seed = 1;
+        String checkpoint = "tournament.txt";
+        List<AiConfig> ais = new ArrayList<AiConfig>();
+        for( int i = 0; i < args.length; i++ )
+        {
+            if( !args[i].startsWith( "-" ) )
+            {
+                ais.add( new AiConfig( args[i] ) );
+                continue;
+            }
+            if( i + 1 >= args.length )
+            {
+                System.err.println( "Missing value: " + args[i] );
+                System.exit( 1 );
+            }
+            if( args[i].equals( "-mode" ) )
+                gauntlet = args[++i].equals( "gauntlet" );
+            else if( args[i].equals( "-rounds" ) )
+                rounds = Integer.parseInt( args[++i] );
+            else if( args[i].equals( "-threads" ) )
+                threads = Integer.parseInt( args[++i] );
+            else if( args[i].equals( "-grid" ) )
+            {
+                String[] grid = args[++i].split( "," );
+                rows = Integer.parseInt( grid[0] );
+                columns = Integer.parseInt( grid[1] );
+                winLength = Integer.parseInt( grid[2] );
+            }
+            else if( args[i].equals( "-opening" ) )
+                openingPlies = Integer.parseInt( args[++i] );
+            else if( args[i].equals( "-seed" ) )
+                seed = Long.parseLong( args[++i] );
+            else if( args[i].equals( "-checkpoint" ) )
+                checkpoint = args[++i];
+            else
+            {
+                System.err.println( "Unknown option: " + args[i] );
+                System.exit( 1 );
+            }
+        }
+        if( ais.size() < 2 )
+        {
+            System.err.println( "Usage: Tournament [-mode roundrobin|gauntlet] "
+                + "[-rounds n] [-threads n] [-grid rows,columns,winLength] "
+                + "[-opening n] [-seed n] [-checkpoint file] spec spec..." );
+            System.exit( 1 );
+        }
+        
+        Tournament tournament = new Tournament(
+            ais.toArray( new AiConfig[ais.size()] ), gauntlet, rounds, rows,
+            columns, winLength, openingPlies, seed );
+        tournament.run( new File( checkpoint ), threads );
+        tournament.printStandings();
+    }
+    
+    /**
+     * Expected score of a player.
+     * @param rating Rating of the player.
+     * @param opponentRating Rating of the opponent.
+     * @return The expected score between 0 and 1.
+     */
+    static double getExpectedScore( double rating, double opponentRating )
+    {
+        return 1 / (1 + Math.pow( 10, (opponentRating - rating) / 400 ));
+    }
+    
+    /**
+     * @param file A file.
+     * @return Returns whether the last character of the file is a newline.
+     *     Otherwise the file ends with a line cut off by an interruption.
+     * @throws IOException If the file could not be read.
+     */
+    private static boolean endsWithNewline( File file ) throws IOException
+    {
+        RandomAccessFile input = new RandomAccessFile( file, "r" );
+        try
+        {
+            if( input.length() == 0 )
+                return true;
+            input.seek( input.length() - 1 );
+            return input.read() == '\n';
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Methods
+    ////////////////////////////////////////////////////////////////////////////
+    /**
+     * Plays all games which are not in the checkpoint file yet.
+     * @param checkpointFile Checkpoint file. It is created if it does not
+     *     exist.
+     * @param threads Number of parallel games.
+     * @throws IOException If the checkpoint file could not be read or
+     *     written or belongs to another tournament.
+     * @throws InterruptedException If the thread was interrupted.
+     */
+    public void run( File checkpointFile, int threads )
+        throws IOException, InterruptedException
+    {
+        final boolean resume = checkpointFile.exists();
+        if( resume )
+            readCheckpoint( checkpointFile );
+        checkpoint = new PrintWriter( new FileWriter( checkpointFile, true ) );
+        try
+        {
+            if( !resume )
+                checkpoint.println( getDescription() );
+            else if( !endsWithNewline( checkpointFile ) )
+                checkpoint.println();
+            checkpoint.flush();
+            System.out.println( getDescription() );
+            if( finishedGames > 0 )
+                System.out.println( "Resuming after " + finishedGames + " of "
+                                    + schedule.length + " games" );
+            
+            List<Runnable> tasks = new ArrayList<Runnable>();
+            for( int i = 0; i < schedule.length; i++ )
+            {
+                if( finished[i] )
+                    continue;
+                final int game = i;
+                tasks.add( new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        play( game );
+                    }
+                } );
+            }
+            new WorkStealingPool( threads ).runAll( tasks );
+        }
+        finally
+        {
+            checkpoint.close();
+        }
+        if( checkpoint.checkError() )
+            throw new IOException( "Could not write " + checkpointFile );
+    }
+    
+    /**
+     * Plays a game and records its result.
+     * @param game Index of the game in the schedule.
+     */
+    private void play( int game )
+    {
+        final AiConfig first = ais[schedule[game][0]];
+        final AiConfig second = ais[schedule[game][1]];
+        final int[] opening = SelfPlay.createOpening( seed + game / 2, rows,
+                                                      columns, winLength,
+                                                      openingPlies );
+        SelfPlay.GameRecord record = SelfPlay.playGame(
+            first, second, rows, columns, winLength, opening,
+            seed * 0x9e3779b97f4a7c15L + game );
+        
+        synchronized( this )
+        {
+            addResult( game, record.getScore( Players.FIRST ) );
+            checkpoint.println( game + "\t" + first + "\t" + second + "\t"
+                                + record.getResult() + "\t"
+                                + record.getMoveList() );
+            checkpoint.flush();
+            if( finishedGames % Math.max( 1, schedule.length / 20 ) == 0
+                || finishedGames == schedule.length )
+                System.out.println( finishedGames + "/" + schedule.length
+                                    + " games" );
+        }
+    }
+    
+    /**
+     * Updates the ratings and statistics with the result of a game.
+     * @param game Index of the game in the schedule.
+     * @param score Score of the first player.
+     */
+    private void addResult( int game, double score )
+    {
+        final int first = schedule[game][0];
+        final int second = schedule[game][1];
+        final double change = kFactor * (score - getExpectedScore(
+            ratings[first], ratings[second] ));
+        ratings[first] += change;
+        ratings[second] -= change;
+        points[first][second] += score;
+        points[second][first] += 1 - score;
+        games[first][second]++;
+        games[second][first]++;
+        finished[game] = true;
+        finishedGames++;
+    }
+    
+    /**
+     * Reads the games of a checkpoint file in the order they were finished.
+     * @param file The checkpoint file.
+     * @throws IOException If the file could not be read or belongs to
+     *     another tournament.
+     */
+    private void readCheckpoint( File file ) throws IOException
+    {
+        BufferedReader reader = new BufferedReader( new FileReader( file ) );
+        try
+        {
+            String line = reader.readLine();
+            if( line == null || !line.equals( getDescription() ) )
+                throw new IOException( file + " belongs to another tournament: "
+                                       + line );
+            while( (line = reader.readLine()) != null )
+            {
+                String[] fields = line.split( "\t" );
+                /* A line cut off by an interruption is played again. */
+                if( fields.length < 5 )
+                    continue;
+                final int game = Integer.parseInt( fields[0] );
+                if( game < 0 || game >= schedule.length || finished[game]
+                    || !fields[1].equals( ais[schedule[game][0]].getName() )
+                    || !fields[2].equals( ais[schedule[game][1]].getName() ) )
+                    throw new IOException( "Invalid game in " + file + ": "
+                                           + line );
+                if( fields[3].equals( "1-0" ) )
+                    addResult( game, 1 );
+                else if( fields[3].equals( "0-1" ) )
+                    addResult( game, 0 );
+                else
+                    addResult( game, 0.5 );
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+    
+    /**
+     * Calculates the maximum likelihood ratings with the minorization-
+     * maximization algorithm for the Bradley-Terry model. A draw counts as
+     * half a win, and one draw between every pair of AIs is assumed as prior.
+     * @return The ratings with an average of {@link #initialRating}.
+     */
+    public double[] getMaximumLikelihoodRatings()
+    {
+        double[] strength = new double[ais.length];
+        Arrays.fill( strength, 1 );
+        for( int iteration = 0; iteration < iterations; iteration++ )
+        {
+            for( int i = 0; i < ais.length; i++ )
+            {
+                double score = 0, denominator = 0;
+                for( int j = 0; j < ais.length; j++ )
+                {
+                    if( i == j )
+                        continue;
+                    score += points[i][j] + 0.5;
+                    denominator += (games[i][j] + 1)
+                                   / (strength[i] + strength[j]);
+                }
+                strength[i] = score / denominator;
+            }
+        }
+        
+        double[] result = new double[ais.length];
+        double sum = 0;
+        for( int i = 0; i < ais.length; i++ )
+        {
+            result[i] = 400 * Math.log10( strength[i] );
+            sum += result[i];
+        }
+        for( int i = 0; i < ais.length; i++ )
+            result[i] += initialRating - sum / ais.length;
+        return result;
+    }
+    
+    /** Prints a table with the results of all AIs, the best first. */
+    public synchronized void printStandings()
+    {
+        final double[] mlRatings = getMaximumLikelihoodRatings();
+        Integer[] order = new Integer[ais.length];
+        for( int i = 0; i < order.length; i++ )
+            order[i] = i;
+        Arrays.sort( order, new Comparator<Integer>() {
+            @Override
+            public int compare( Integer a, Integer b )
+            {
+                return Double.compare( mlRatings[b], mlRatings[a] );
+            }
+        } );
+        
+        System.out.println( String.format( "%-4s %-30s %6s %6s %6s %6s",
+                                           "Rank", "AI", "Games", "Score",
+                                           "Elo", "MLElo" ) );
+        for( int rank = 0; rank < order.length; rank++ )
+        {
+            final int i = order[rank];
+            int played = 0;
+            double score = 0;
+            for( int j = 0; j < ais.length; j++ )
+            {
+                played += games[i][j];
+                score += points[i][j];
+            }
+            System.out.println( String.format(
+                "%-4d %-30s %6d %5.1f%% %6.0f %6.0f", rank + 1, ais[i],
+                played, (played > 0) ? 100 * score / played : 0, ratings[i],
+                mlRatings[i] ) );
+        }
+    }
+    
+    /**
+     * @return Returns a line describing the settings of the tournament and
+     *     all settings of the AIs. It is stored in the checkpoint file to
+     *     detect changed settings.
+     */
+    private String getDescription()
+    {
+        StringBuilder builder = new StringBuilder( "# tournament" );
+        builder.append( " mode=" ).append( gauntlet ? "gauntlet"
+                                                    : "roundrobin" );
+        builder.append( " games=" ).append( schedule.length );
+        builder.append( " grid=" ).append( rows ).append( ',' )
+               .append( columns ).append( ',' ).append( winLength );
+        builder.append( " opening=" ).append( openingPlies );
+        builder.append( " seed=" ).append( seed );
+        for( AiConfig ai : ais )
+            builder.append( " [" ).append( ai.getSpec() ).append( ']' );
+        return builder.toString();
+    }
+}